@@ -0,0 +1,81 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The AcquisitionBenchmark class compares acquiring samples one call at a
+* time (KelvinTempSensor.reading(), Barometer.pressure()) with the bulk
+* readings() and pressures() methods, for several block sizes.
+*/
+
+public class AcquisitionBenchmark{
+    private static final int SAMPLES = 1 << 22;     // Samples per measurement.
+
+    /**
+    * Run the comparison.
+    *
+    * @param - String[] args: nothing
+    */
+    public static void main(String[] args){
+        KelvinTempSensor sensor = new KelvinTempSensor();
+        Barometer barometer = new Barometer();
+        int[] kelvin = new int[1024];
+        double[] pressure = new double[1024];
+
+        for(int round = 0; round < 3; round++){     // first rounds warm up the JIT
+            long sink = 0;
+            long start = System.nanoTime();
+            for(int i = 0; i < SAMPLES; i++){
+                sink += sensor.reading();
+            }
+            report(round, "reading()", 1, start, sink);
+
+            for(int block = 16; block <= 1024; block *= 8){
+                sink = 0;
+                start = System.nanoTime();
+                for(int i = 0; i < SAMPLES; i += block){
+                    sensor.readings(kelvin, 0, block);
+                    sink += kelvin[block - 1];
+                }
+                report(round, "readings()", block, start, sink);
+            }
+
+            double total = 0;
+            start = System.nanoTime();
+            for(int i = 0; i < SAMPLES; i++){
+                total += barometer.pressure();
+            }
+            report(round, "pressure()", 1, start, (long) total);
+
+            for(int block = 16; block <= 1024; block *= 8){
+                total = 0;
+                start = System.nanoTime();
+                for(int i = 0; i < SAMPLES; i += block){
+                    barometer.pressures(pressure, 0, block);
+                    total += pressure[block - 1];
+                }
+                report(round, "pressures()", block, start, (long) total);
+            }
+        }
+    }
+
+    /**
+    * Print the time per sample of a measurement, on the last round only.
+    *
+    * @param - int round: the round number, String method: what was measured,
+    *          int block: samples per call, long start: start time in ns,
+    *          long sink: result kept so the work can't be optimized away
+    */
+    private static void report(int round, String method, int block, long start, long sink){
+        long elapsed = System.nanoTime() - start;
+        if(round == 2){
+            System.out.printf("%-12s block %5d: %6.2f ns/sample   (%d)%n",
+                    method, block, (double) elapsed / SAMPLES, sink & 0xF);
+        }
+    }
+}
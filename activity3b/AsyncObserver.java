@@ -0,0 +1,399 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The AsyncObserver class wraps another Observer so that it is updated on
+* its own thread instead of the station's. The station only puts the
+* update in the wrapper's bounded queue and carries on sampling, so a
+* slow subscriber (a SwingUI calling pack(), a TextUI blocked on stdout)
+* no longer delays the next sensor read for everyone else, e.g.
+*
+*    AsyncObserver.wrap(station, swingUI, 16, AsyncObserver.Overflow.CONFLATE);
+*
+* What happens when the subscriber falls behind and its queue is full is
+* chosen per subscriber:
+*    - DROP_OLDEST: the oldest queued update is discarded,
+*    - CONFLATE: only the latest update of each station is kept, so the
+*      subscriber always sees the newest reading and never a backlog,
+*    - BLOCK: the station waits for room, so nothing is lost but the
+*      subscriber can slow the station down again (the old behaviour,
+*      with a buffer).
+*
+* Updates are delivered in order, one at a time, on either a thread of
+* the wrapper's own or a given Executor shared by many wrappers. An
+* update that throws is counted and skipped. Drops, conflations, errors,
+* time spent blocked and queueing delay are reported to the default
+* MetricsRegistry (async.dropped, async.conflated, async.errors,
+* async.blocked, async.delay).
+*
+* The main method compares tick times with a slow subscriber called
+* directly and through each policy.
+*/
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class AsyncObserver implements Observer, AutoCloseable{
+    private static final int BATCH = 64;       // Updates per turn on a shared executor.
+    private static final AtomicInteger threads = new AtomicInteger(); // Thread numbering.
+
+    private static final LongAdder DROPPED = MetricsRegistry.getDefault().counter("async.dropped");
+    private static final LongAdder CONFLATED = MetricsRegistry.getDefault().counter("async.conflated");
+    private static final LongAdder ERRORS = MetricsRegistry.getDefault().counter("async.errors");
+    private static final LatencyHistogram BLOCKED = MetricsRegistry.getDefault().latency("async.blocked");
+    private static final LatencyHistogram DELAY = MetricsRegistry.getDefault().latency("async.delay");
+
+    /**
+    * What to do with a new update when the queue is full.
+    */
+    public enum Overflow{
+        DROP_OLDEST, CONFLATE, BLOCK
+    }
+
+    /**
+    * One queued update. For CONFLATE the argument is replaced in place.
+    */
+    private static final class Update{
+        final Observable obs;
+        Object arg;
+        long queued;        // System.nanoTime() when queued.
+
+        Update(Observable obs, Object arg, long queued){
+            this.obs = obs;
+            this.arg = arg;
+            this.queued = queued;
+        }
+    }
+
+    private final Observer observer;
+    private final int capacity;
+    private final Overflow overflow;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;     // Shut down on close, if ours.
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<Update> queue;
+    private final Map<Observable, Update> latest = new HashMap<>();  // CONFLATE: queued update per station.
+    private boolean scheduled;         // Is a drain task queued or running?
+    private boolean closed;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+    * Wrap <observer> with a queue of <capacity> updates and a thread of
+    * its own.
+    *
+    * @param - Observer observer: the receiver, int capacity: queue size,
+    *          Overflow overflow: what to do when the queue is full
+    */
+    public AsyncObserver(Observer observer, int capacity, Overflow overflow){
+        this(observer, capacity, overflow, null);
+    }
+
+    /**
+    * Wrap <observer> with a queue of <capacity> updates, delivered on
+    * <executor>, or on a thread of its own if <executor> is null.
+    *
+    * @param - Observer observer: the receiver, int capacity: queue size,
+    *          Overflow overflow: what to do when the queue is full,
+    *          Executor executor: where updates are delivered, or null
+    */
+    public AsyncObserver(Observer observer, int capacity, Overflow overflow, Executor executor){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.observer = observer;
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.queue = new ArrayDeque<>(Math.min(capacity, 1024));
+        if(executor == null){
+            String name = "async-" + observer.getClass().getSimpleName() + "-" + threads.incrementAndGet();
+            ownExecutor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownExecutor;
+        }
+        else{
+            ownExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    /**
+    * Replace <observer> on <station> with an AsyncObserver around it.
+    *
+    * @param - WeatherStation station: the observed station, Observer observer: the receiver,
+    *          int capacity: queue size, Overflow overflow: what to do when the queue is full
+    * @return - AsyncObserver: the wrapper now observing the station
+    */
+    public static AsyncObserver wrap(WeatherStation station, Observer observer, int capacity, Overflow overflow){
+        AsyncObserver async = new AsyncObserver(observer, capacity, overflow);
+        station.deleteObserver(observer);
+        station.addObserver(async);
+        return async;
+    }
+
+    /**
+    * Called on the station's thread: queue the update and return.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        long now = System.nanoTime();
+        boolean schedule = false;
+        lock.lock();
+        try{
+            if(closed){
+                return;
+            }
+            if(overflow == Overflow.CONFLATE){
+                Update pending = latest.get(obs);
+                if(pending != null){
+                    pending.arg = arg;          // keep its place, newest value
+                    pending.queued = now;
+                    CONFLATED.increment();
+                    return;
+                }
+            }
+            while(queue.size() >= capacity){
+                if(overflow == Overflow.BLOCK){
+                    long start = System.nanoTime();
+                    notFull.awaitUninterruptibly();
+                    BLOCKED.record(System.nanoTime() - start);
+                    if(closed){
+                        return;
+                    }
+                }
+                else{
+                    Update oldest = queue.pollFirst();
+                    latest.remove(oldest.obs, oldest);
+                    dropped.increment();
+                    DROPPED.increment();
+                }
+            }
+            Update update = new Update(obs, arg, now);
+            queue.addLast(update);
+            if(overflow == Overflow.CONFLATE){
+                latest.put(obs, update);
+            }
+            if(!scheduled){
+                scheduled = true;
+                schedule = true;
+            }
+        }
+        finally{
+            lock.unlock();
+        }
+        if(schedule){
+            submit();
+        }
+    }
+
+    /**
+    * Queue a drain task on the executor.
+    */
+    private void submit(){
+        try{
+            executor.execute(this::drain);
+        }
+        catch(RejectedExecutionException e){
+            lock.lock();
+            try{
+                scheduled = false;      // the executor is shut down
+            }
+            finally{
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+    * Deliver queued updates in order, up to BATCH per turn so that a
+    * shared executor is not held by one busy subscriber. An exception
+    * from the observer is counted and the next update delivered; an
+    * Error ends this turn, but the drain is resubmitted first, so the
+    * queue is never left scheduled with nothing draining it.
+    */
+    private void drain(){
+        boolean done = false;
+        try{
+            for(int n = 0; n < BATCH; n++){
+                Update update;
+                Object arg;
+                lock.lock();
+                try{
+                    update = queue.pollFirst();
+                    if(update == null){
+                        scheduled = false;
+                        done = true;
+                        return;
+                    }
+                    latest.remove(update.obs, update);
+                    arg = update.arg;
+                    notFull.signal();
+                }
+                finally{
+                    lock.unlock();
+                }
+                DELAY.record(System.nanoTime() - update.queued);
+                try{
+                    observer.update(update.obs, arg);
+                    delivered.increment();
+                }
+                catch(RuntimeException e){
+                    errors.increment();     // one bad update must not stop the rest
+                    ERRORS.increment();
+                }
+            }
+        }
+        finally{
+            if(!done){
+                submit();                   // more to do, or an Error: take another turn
+            }
+        }
+    }
+
+    /**
+    * Return the number of updates delivered to the wrapped Observer.
+    */
+    public long getDelivered(){
+        return delivered.sum();
+    }
+
+    /**
+    * Return the number of updates dropped because the queue was full.
+    */
+    public long getDropped(){
+        return dropped.sum();
+    }
+
+    /**
+    * Return the number of updates that threw an exception.
+    */
+    public long getErrors(){
+        return errors.sum();
+    }
+
+    /**
+    * Return the number of updates waiting.
+    */
+    public int getQueued(){
+        lock.lock();
+        try{
+            return queue.size();
+        }
+        finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+    * Stop accepting updates, discard the queue, release any blocked
+    * station and stop the thread, if it is the wrapper's own.
+    */
+    public void close(){
+        lock.lock();
+        try{
+            closed = true;
+            queue.clear();
+            latest.clear();
+            notFull.signalAll();
+        }
+        finally{
+            lock.unlock();
+        }
+        if(ownExecutor != null){
+            ownExecutor.shutdown();
+        }
+    }
+
+    /**
+    * Benchmark: tick a station every <period> ms for <seconds> seconds
+    * with a subscriber that takes <slow> ms per update, called directly
+    * and through each overflow policy, and report the tick times.
+    *
+    * @param - String[] args: [period [slow [seconds]]]
+    */
+    public static void main(String[] args) throws InterruptedException{
+        long period = args.length > 0 ? Long.parseLong(args[0]) : 10;
+        long slow = args.length > 1 ? Long.parseLong(args[1]) : 25;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        System.out.printf("Period %d ms, subscriber %d ms per update, %d s per run%n", period, slow, seconds);
+        System.out.printf("%-12s %8s %10s %10s %10s %10s%n", "dispatch", "ticks", "tick p50", "tick p99",
+                "delivered", "dropped");
+        for(String mode : new String[]{ "direct", "DROP_OLDEST", "CONFLATE", "BLOCK" }){
+            LongAdder received = new LongAdder();
+            Observer subscriber = (obs, arg) -> {
+                try{
+                    Thread.sleep(slow);
+                }
+                catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                received.increment();
+            };
+            WeatherStation station = new WeatherStation(period);
+            AsyncObserver async = null;
+            if(mode.equals("direct")){
+                station.addObserver(subscriber);
+            }
+            else{
+                async = new AsyncObserver(subscriber, 16, Overflow.valueOf(mode));
+                station.addObserver(async);
+            }
+
+            LatencyHistogram ticks = new LatencyHistogram();
+            Thread sampler = new Thread(() -> {
+                long deadline = System.nanoTime();
+                while(!Thread.currentThread().isInterrupted()){
+                    deadline = station.nextDeadline(deadline, System.nanoTime());
+                    long delay = deadline - System.nanoTime();
+                    if(delay > 0){
+                        try{
+                            Thread.sleep(delay / 1000000, (int) (delay % 1000000));
+                        }
+                        catch(InterruptedException e){
+                            return;
+                        }
+                    }
+                    long start = System.nanoTime();
+                    station.tick();
+                    ticks.record(System.nanoTime() - start);
+                }
+            });
+            sampler.start();
+            Thread.sleep(seconds * 1000L);
+            sampler.interrupt();
+            sampler.join();
+            if(async != null){
+                async.close();
+            }
+            System.out.printf("%-12s %8d %8.2fms %8.2fms %10d %10d%n", mode, ticks.getCount(),
+                    ticks.getPercentile(50) / 1e6, ticks.getPercentile(99) / 1e6,
+                    received.sum(), async == null ? 0 : async.getDropped());
+        }
+    }
+}
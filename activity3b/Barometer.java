@@ -1,74 +1,145 @@
-/*
- * Initial Author
- *      Michael J. Lutz
- *
- * Other Contributers
- *
- * Acknowledgements
- */
-
-/*
- * Class for a (simulated) barometer. We assume the "real" barometer
- * returns atmospheric pressure, in inches of mercury, as a double
- * precision number (average pressure = 29.92 inches).
- *
- * NOTE: Outside the U.S. and Canada atmospheric pressure is
- *       given in millibars, where average pressure = 1013.25 mbar.
- *       The conversion factor is 1 inch = 33.864 mbar.
- */
-
-import java.util.Random ;   // to simulate random fluctuations.
-
-public class Barometer {
-    private final double MIN = 27.0 ;       // minimum reading
-    private final double MAX = 32.0 ;       // maximum reading
-    private final double DEFAULT = 29.92 ;  // default reading.
-
-    private double currentPressure ;     // current sensor reading
-    private boolean increasing = true ;  // TRUE if pressure increasing
-    private Random rand = new Random() ; // simulate random changes
-
-    /*
-     * Initialize the sensor to the DEFAULT value.
-     */
-    public Barometer() {
-        currentPressure = DEFAULT ;
-    }
-
-    /*
-     * Simulate a new pressure reading based on the last reading
-     * and whether the trend is up or down.
-     * We assume that the pressure has a 75% chance of continuing
-     * its current trend.
-     * We also constrain the value to a reasonable range.
-     */
-    public double pressure() {
-        final double CUTOFF = 0.75 ;    // 75% chance to continue trend
-        final double MAXDELTA = 0.2 ;   // maximum pressure change
-        double pressureChange ;         // absolute value pressure change.
-
-        if ( rand.nextDouble() > CUTOFF ) {
-            increasing = ! increasing ;         // switch direction
-        }
-
-        /*
-         * Generate the new simulated pressure.
-         */
-        pressureChange = rand.nextDouble() * MAXDELTA ;
-        currentPressure = currentPressure +
-            pressureChange * (increasing ? 1 : -1) ;
-
-        /*
-         * Limit readings to the specified (simulated) range.
-         */
-        if( currentPressure >= MAX ) {
-            currentPressure = MAX ;
-            increasing = false ;
-        } else if (currentPressure <= MIN ) {
-            currentPressure = MIN ;
-            increasing = true ;
-        }
-
-        return currentPressure ;
-    }
-}
+/*
+ * Initial Author
+ *      Michael J. Lutz
+ *
+ * Other Contributers
+ *
+ * Acknowledgements
+ */
+
+/*
+ * Class for a (simulated) barometer. We assume the "real" barometer
+ * returns atmospheric pressure, in inches of mercury, as a double
+ * precision number (average pressure = 29.92 inches).
+ *
+ * NOTE: Outside the U.S. and Canada atmospheric pressure is
+ *       given in millibars, where average pressure = 1013.25 mbar.
+ *       The conversion factor is 1 inch = 33.864 mbar.
+ *
+ * As a Sensor it reports inches of mercury.
+ */
+
+import java.util.Objects ;  // for bounds checks on bulk reads.
+import java.util.SplittableRandom ; // to simulate random fluctuations.
+
+public class Barometer implements Sensor {
+    private final double MIN = 27.0 ;       // minimum reading
+    private final double MAX = 32.0 ;       // maximum reading
+    private final double DEFAULT = 29.92 ;  // default reading.
+
+    private double currentPressure ;     // current sensor reading
+    private boolean increasing = true ;  // TRUE if pressure increasing
+    private final SplittableRandom rand ; // simulate random changes
+
+    /*
+     * Initialize the sensor to the DEFAULT value.
+     */
+    public Barometer() {
+        this(new SplittableRandom()) ;
+    }
+
+    /*
+     * Initialize the sensor to the DEFAULT value, with a fixed seed so
+     * the same seed always produces the same sequence of pressures.
+     */
+    public Barometer(long seed) {
+        this(new SplittableRandom(seed)) ;
+    }
+
+    /*
+     * Initialize the sensor to the DEFAULT value, drawing its random
+     * changes from <rand>, which the sensor then owns.
+     */
+    public Barometer(SplittableRandom rand) {
+        this.rand = rand ;
+        currentPressure = DEFAULT ;
+    }
+
+    /*
+     * Simulate a new pressure reading based on the last reading
+     * and whether the trend is up or down.
+     * We assume that the pressure has a 75% chance of continuing
+     * its current trend.
+     * We also constrain the value to a reasonable range.
+     */
+    public double pressure() {
+        final double CUTOFF = 0.75 ;    // 75% chance to continue trend
+        final double MAXDELTA = 0.2 ;   // maximum pressure change
+        double pressureChange ;         // absolute value pressure change.
+
+        if ( rand.nextDouble() > CUTOFF ) {
+            increasing = ! increasing ;         // switch direction
+        }
+
+        /*
+         * Generate the new simulated pressure.
+         */
+        pressureChange = rand.nextDouble() * MAXDELTA ;
+        currentPressure = currentPressure +
+            pressureChange * (increasing ? 1 : -1) ;
+
+        /*
+         * Limit readings to the specified (simulated) range.
+         */
+        if( currentPressure >= MAX ) {
+            currentPressure = MAX ;
+            increasing = false ;
+        } else if (currentPressure <= MIN ) {
+            currentPressure = MIN ;
+            increasing = true ;
+        }
+
+        return currentPressure ;
+    }
+
+    /*
+     * Fill dst[off .. off+len-1] with the next <len> pressures, exactly
+     * as <len> calls to pressure() would, but in one call so that the
+     * caller can acquire a whole block of samples per wakeup.
+     */
+    public int pressures(double[] dst, int off, int len) {
+        final double CUTOFF = 0.75 ;    // 75% chance to continue trend
+        final double MAXDELTA = 0.2 ;   // maximum pressure change
+
+        Objects.checkFromIndexSize(off, len, dst.length) ;
+
+        double pressure = currentPressure ; // work on locals, store back once
+        boolean up = increasing ;
+
+        for ( int i = off ; i < off + len ; i++ ) {
+            if ( rand.nextDouble() > CUTOFF ) {
+                up = ! up ;                     // switch direction
+            }
+
+            pressure = pressure + rand.nextDouble() * MAXDELTA * (up ? 1 : -1) ;
+
+            if( pressure >= MAX ) {
+                pressure = MAX ;
+                up = false ;
+            } else if (pressure <= MIN ) {
+                pressure = MIN ;
+                up = true ;
+            }
+            dst[i] = pressure ;
+        }
+
+        currentPressure = pressure ;
+        increasing = up ;
+        return len ;
+    }
+
+    /*
+     * Sensor name, unit and reading.
+     */
+    public String getName() {
+        return "pressure" ;
+    }
+
+    public String getUnit() {
+        return "inHg" ;
+    }
+
+    public double read() {
+        return pressure() ;
+    }
+}
@@ -0,0 +1,261 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The ChannelTextUI class is a high-throughput text output for one or
+* many WeatherStations, meant for logging thousands of stations.
+*
+* Unlike TextUI it never uses a Formatter or builds Strings: temperatures
+* are copied from the DisplayTable and pressures formatted straight from
+* their integer hundredths into a reusable byte buffer, and the buffer is
+* written to a channel in large batches when it fills up, or at most
+* <flushMillis> after the oldest unwritten line, even if no more readings
+* arrive (a shared daemon timer thread writes out lines that are due).
+* Each tick is one line:
+*
+* Station 12 Temperature:  25.48 C  77.86 F 298.63 K Pressure:  30.09 inches 1018.81 mbar
+*
+* The main method logs a number of stations to standard output.
+*/
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelTextUI implements Observer, AutoCloseable{
+    private static final int LINE_MAX = 128;               // Longest possible line.
+
+    private static final byte[] STATION = bytes("Station ");
+    private static final byte[] TEMPERATURE = bytes(" Temperature: ");
+    private static final byte[] C = bytes(" C ");
+    private static final byte[] F = bytes(" F ");
+    private static final byte[] K = bytes(" K Pressure: ");
+    private static final byte[] INCHES = bytes(" inches ");
+    private static final byte[] MBAR = bytes(" mbar\n");
+
+    /**
+    * Writes out buffers whose oldest line is due, for every ChannelTextUI.
+    */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "channel-text-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final long flushNanos;
+    private long oldest = -1;       // When the oldest unwritten line was added.
+    private boolean timed;          // Is a timed flush scheduled?
+
+    /**
+    * Write to standard output with a 64 KB buffer, flushing at least
+    * once a second.
+    */
+    public ChannelTextUI(){
+        this(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), 1 << 16, 1000);
+    }
+
+    /**
+    * Write to <channel>.
+    *
+    * @param - WritableByteChannel channel: where the text goes,
+    *          int bufferSize: bytes buffered between writes,
+    *          long flushMillis: longest time a line may stay buffered
+    */
+    public ChannelTextUI(WritableByteChannel channel, int bufferSize, long flushMillis){
+        if(bufferSize < LINE_MAX){
+            throw new IllegalArgumentException("buffer must hold at least one line: " + bufferSize);
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.flushNanos = flushMillis * 1000000L;
+    }
+
+    /**
+    * Start logging <station>.
+    *
+    * @param - WeatherStation station: the station to log
+    */
+    public void attach(WeatherStation station){
+        station.addObserver(this);
+    }
+
+    /**
+    * Called when a WeatherStation gets another reading.
+    * Formats it into the buffer.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        Reading reading = arg instanceof Reading ? (Reading) arg
+                : obs instanceof WeatherStation ? ((WeatherStation) obs).getReading() : null;
+        if(reading != null){
+            write(reading);
+        }
+    }
+
+    /**
+    * Format one reading into the buffer, writing the buffer out if it
+    * is full or has held a line for too long.
+    *
+    * @param - Reading reading: the reading to log
+    */
+    public synchronized void write(Reading reading){
+        if(buffer.remaining() < LINE_MAX){
+            drain();
+        }
+        if(oldest < 0){
+            oldest = System.nanoTime();
+            if(!timed){
+                timed = true;
+                TIMER.schedule(this::flushIfDue, flushNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        buffer.put(STATION);
+        putDigits(reading.getStationId());
+        buffer.put(TEMPERATURE);
+        int kelvin = reading.getRawKelvin();
+        DisplayTable.putCelsius(buffer, kelvin);
+        buffer.put(C);
+        DisplayTable.putFahrenheit(buffer, kelvin);
+        buffer.put(F);
+        DisplayTable.putKelvin(buffer, kelvin);
+        buffer.put(K);
+        Units.putFixed(buffer, reading.getInchesHundredths(), 6);
+        buffer.put(INCHES);
+        Units.putFixed(buffer, reading.getMillibarsHundredths(), 6);
+        buffer.put(MBAR);
+
+        if(System.nanoTime() - oldest >= flushNanos){
+            drain();
+        }
+    }
+
+    /**
+    * Run by the timer: write out the buffer if its oldest line is due,
+    * or wait again until it is.
+    */
+    private synchronized void flushIfDue(){
+        timed = false;
+        if(oldest < 0){
+            return;
+        }
+        long wait = oldest + flushNanos - System.nanoTime();
+        if(wait > 0){
+            timed = true;
+            TIMER.schedule(this::flushIfDue, wait, TimeUnit.NANOSECONDS);
+            return;
+        }
+        try{
+            drain();
+        }
+        catch(UncheckedIOException e){
+            // the next write reports it
+        }
+    }
+
+    /**
+    * Write out everything buffered so far.
+    */
+    public synchronized void flush(){
+        drain();
+    }
+
+    /**
+    * Flush and close the channel.
+    */
+    public synchronized void close() throws IOException{
+        drain();
+        channel.close();
+    }
+
+    /**
+    * Write the buffer to the channel and empty it.
+    */
+    private void drain(){
+        buffer.flip();
+        try{
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        finally{
+            buffer.clear();
+            oldest = -1;
+        }
+    }
+
+    /**
+    * Put the decimal digits of a non-negative int.
+    *
+    * @param - int value: the value
+    */
+    private void putDigits(int value){
+        int position = buffer.position() + digits(value);
+        buffer.position(position);
+        do{
+            buffer.put(--position, (byte) ('0' + value % 10));
+            value /= 10;
+        } while(value != 0);
+    }
+
+    /**
+    * Return the number of decimal digits in a non-negative int.
+    *
+    * @param - int value: the value
+    */
+    private static int digits(int value){
+        int digits = 1;
+        while(value >= 10){
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+    * Return the ASCII bytes of a constant.
+    */
+    private static byte[] bytes(String text){
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+    * Log <stations> stations (default 1) to standard output.
+    *
+    * @param - String[] args: [stations]
+    */
+    public static void main(String[] args) throws InterruptedException{
+        int stations = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        ChannelTextUI ui = new ChannelTextUI();
+        StationEngine engine = new StationEngine();
+        for(int i = 0; i < stations; i++){
+            WeatherStation ws = new WeatherStation();
+            ui.attach(ws);
+            engine.start(ws);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(ui::flush));
+        Thread.currentThread().join();      // the engine threads are daemons
+    }
+}
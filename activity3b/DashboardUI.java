@@ -0,0 +1,162 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The DashboardUI class shows the latest readings of many WeatherStations
+* in one window, one row per station.
+*
+* It is a JTable over a table model that reads each station's latest
+* Reading snapshot when a cell is painted, so the table holds no copy of
+* the data and only the rows that are scrolled into view are ever
+* formatted. Stations just mark the dashboard dirty when they tick; a
+* Swing Timer repaints the visible part of the table at most once per
+* frame.
+*
+* The main method shows a dashboard of 10000 (or the given number of)
+* stations driven by a StationEngine.
+*/
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+
+public class DashboardUI implements Observer{
+    private static final int FRAME = 16;   // ms per frame, about 60 frames a second.
+    private static final String[] COLUMNS = {
+        "Station", "Kelvin", "Celsius", "Fahrenheit", "Inches", "Millibars", "Tick"
+    };
+
+    private final WeatherStation[] stations;
+    private final AtomicBoolean dirty = new AtomicBoolean(); // Has any station ticked since the last frame?
+    private final Timer frameTimer = new Timer(FRAME, e -> render());
+
+    public JFrame swing = new JFrame();
+    public JTable table;
+    public JScrollPane scroll;
+
+    /**
+    * Remember the stations, add ourselves as an observer of each
+    * and create the window.
+    *
+    * @param - WeatherStation[] stations: the stations to show, one per row
+    */
+    public DashboardUI(WeatherStation[] stations){
+        this.stations = stations.clone();
+        for(WeatherStation station : this.stations){
+            station.addObserver(this);
+        }
+        Swing();
+    }
+
+    /**
+    * Create the Swing window.
+    */
+    public void Swing(){
+        swing.setTitle("Weather Stations, Dashboard");
+
+        table = new JTable(new StationTableModel());
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+        table.setRowHeight(20);
+        table.setFillsViewportHeight(true);
+        DefaultTableCellRenderer right = new DefaultTableCellRenderer();
+        right.setHorizontalAlignment(JLabel.RIGHT);
+        table.setDefaultRenderer(Object.class, right);
+
+        scroll = new JScrollPane(table);
+        scroll.setPreferredSize(new Dimension(800, 600));
+        swing.add(scroll);
+
+        swing.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        swing.pack();
+        swing.setVisible(true);
+        frameTimer.start();
+    }
+
+    /**
+    * Called when any of the stations gets another reading.
+    * Only marks the dashboard for repainting.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        dirty.lazySet(true);
+    }
+
+    /**
+    * Called by the frame Timer on the event dispatch thread.
+    * Repaints just the rows in view, if anything has changed.
+    */
+    private void render(){
+        if(dirty.getAndSet(false)){
+            table.repaint(scroll.getViewport().getViewRect());
+        }
+    }
+
+    /**
+    * Table model that reads every cell from the station's latest
+    * Reading, so nothing is copied when stations tick.
+    */
+    private class StationTableModel extends AbstractTableModel{
+        private static final long serialVersionUID = 1L;
+
+        public int getRowCount(){
+            return stations.length;
+        }
+
+        public int getColumnCount(){
+            return COLUMNS.length;
+        }
+
+        public String getColumnName(int column){
+            return COLUMNS[column];
+        }
+
+        public Object getValueAt(int row, int column){
+            Reading reading = stations[row].getReading();
+            switch(column){
+                case 0: return Integer.toString(reading.getStationId());
+                case 1: return DisplayTable.kelvin(reading.getRawKelvin());
+                case 2: return DisplayTable.celsius(reading.getRawKelvin());
+                case 3: return DisplayTable.fahrenheit(reading.getRawKelvin());
+                case 4: return Units.fixed(reading.getInchesHundredths(), 0);
+                case 5: return Units.fixed(reading.getMillibarsHundredths(), 0);
+                default: return Long.toString(reading.getSequence());
+            }
+        }
+    }
+
+    /**
+    * Start the application.
+    *
+    * @param - String[] args: [stations [period]]
+    */
+    public static void main(String[] args){
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long period = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        WeatherStation[] stations = new WeatherStation[count];
+        StationEngine engine = new StationEngine();
+        for(int i = 0; i < count; i++){
+            stations[i] = new WeatherStation(period);
+        }
+        SwingUtilities.invokeLater(() -> new DashboardUI(stations));
+        for(WeatherStation ws : stations){
+            engine.start(ws);
+        }
+    }
+}
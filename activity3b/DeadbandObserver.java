@@ -0,0 +1,108 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The DeadbandObserver class wraps another Observer of a WeatherStation
+* and only passes on readings that are worth reporting: those where the
+* temperature or pressure moved by at least a threshold since the last
+* reading passed on, or where nothing has been passed on for a given time.
+* Every subscriber can be given its own deadband, e.g.
+*
+*    DeadbandObserver.wrap(station, textUI, 0.5, 0.05, 60000);
+*
+* passes a reading to textUI only on a change of at least 0.5 C or
+* 0.05 inches, or at least once a minute.
+*/
+
+import java.util.Observable;
+import java.util.Observer;
+
+public class DeadbandObserver implements Observer{
+    private final Observer observer;        // Who receives the readings passed on.
+    private final double celsiusBand;       // Minimum temperature change in C.
+    private final double inchesBand;        // Minimum pressure change in inches.
+    private final long maxSilence;          // Longest time between readings in ms, 0 = no limit.
+
+    private Reading last;                   // Last reading passed on.
+    private long passed;                    // Readings passed on.
+    private long suppressed;                // Readings held back.
+
+    /**
+    * Wrap <observer> in a deadband.
+    *
+    * @param - Observer observer: the receiver, double celsiusBand: minimum change in C,
+    *          double inchesBand: minimum change in inches,
+    *          long maxSilence: pass a reading at least this often (ms), or 0 for never
+    */
+    public DeadbandObserver(Observer observer, double celsiusBand, double inchesBand, long maxSilence){
+        if(celsiusBand < 0 || inchesBand < 0 || maxSilence < 0){
+            throw new IllegalArgumentException("deadband limits must not be negative");
+        }
+        this.observer = observer;
+        this.celsiusBand = celsiusBand;
+        this.inchesBand = inchesBand;
+        this.maxSilence = maxSilence;
+    }
+
+    /**
+    * Replace <observer> on <station> with a deadband around it.
+    *
+    * @param - WeatherStation station: the observed station, Observer observer: the receiver,
+    *          double celsiusBand: minimum change in C, double inchesBand: minimum change in inches,
+    *          long maxSilence: pass a reading at least this often (ms), or 0 for never
+    * @return - DeadbandObserver: the wrapper now observing the station
+    */
+    public static DeadbandObserver wrap(WeatherStation station, Observer observer,
+            double celsiusBand, double inchesBand, long maxSilence){
+        DeadbandObserver deadband = new DeadbandObserver(observer, celsiusBand, inchesBand, maxSilence);
+        station.deleteObserver(observer);
+        station.addObserver(deadband);
+        return deadband;
+    }
+
+    /**
+    * Called when the WeatherStation gets another reading.
+    * Passes it on if it is outside the deadband.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        if(!(arg instanceof Reading)){
+            observer.update(obs, arg);
+            return;
+        }
+        Reading reading = (Reading) arg;
+        synchronized(this){
+            if(last != null
+                    && Math.abs(reading.getCelsius() - last.getCelsius()) < celsiusBand
+                    && Math.abs(reading.getPressureInches() - last.getPressureInches()) < inchesBand
+                    && (maxSilence == 0 || reading.getTimestamp() - last.getTimestamp() < maxSilence)){
+                suppressed++;
+                return;
+            }
+            last = reading;
+            passed++;
+        }
+        observer.update(obs, reading);
+    }
+
+    /**
+    * Return the number of readings passed on.
+    */
+    public synchronized long getPassed(){
+        return passed;
+    }
+
+    /**
+    * Return the number of readings held back.
+    */
+    public synchronized long getSuppressed(){
+        return suppressed;
+    }
+}
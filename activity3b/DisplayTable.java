@@ -0,0 +1,161 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The DisplayTable class holds the display text of every temperature the
+* KelvinTempSensor can report (raw 23315..38315, 15001 values) in Kelvin,
+* Celsius and Fahrenheit, formatted as %6.2f would format them. A display
+* can then render a temperature with one array lookup:
+*    - as a String, for Swing labels and tables, or
+*    - as 6 ASCII bytes copied into a ByteBuffer, for text output.
+*
+* The tables are built when the class is first used. Values outside the
+* sensor's range are formatted on the spot.
+*
+* The main method reports the memory used by the tables and the time
+* taken to build them.
+*/
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class DisplayTable{
+    public static final int WIDTH = 6;         // Characters per formatted value.
+
+    private static final int COUNT = Units.MAX_KELVIN - Units.MIN_KELVIN + 1;
+
+    /**
+    * The tables, in their own class so that they are built on first
+    * use rather than when DisplayTable is loaded.
+    */
+    private static final class Tables{
+        static final String[] KELVIN = new String[COUNT];
+        static final String[] CELSIUS = new String[COUNT];
+        static final String[] FAHRENHEIT = new String[COUNT];
+
+        // The same text packed as WIDTH bytes per value.
+        static final byte[] KELVIN_BYTES = new byte[COUNT * WIDTH];
+        static final byte[] CELSIUS_BYTES = new byte[COUNT * WIDTH];
+        static final byte[] FAHRENHEIT_BYTES = new byte[COUNT * WIDTH];
+
+        static{
+            for(int i = 0; i < COUNT; i++){
+                int raw = Units.MIN_KELVIN + i;
+                KELVIN[i] = fill(KELVIN_BYTES, i, raw);
+                CELSIUS[i] = fill(CELSIUS_BYTES, i, Units.celsius(raw));
+                FAHRENHEIT[i] = fill(FAHRENHEIT_BYTES, i, Units.fahrenheit(raw));
+            }
+        }
+    }
+
+    private DisplayTable(){
+    }
+
+    /**
+    * Return the Kelvin temperature as text.
+    *
+    * @param - int raw: raw Kelvin reading in 1/100ths
+    */
+    public static String kelvin(int raw){
+        int i = raw - Units.MIN_KELVIN;
+        return i >= 0 && i < COUNT ? Tables.KELVIN[i] : Units.fixed(raw, WIDTH);
+    }
+
+    /**
+    * Return the Celsius temperature as text.
+    *
+    * @param - int raw: raw Kelvin reading in 1/100ths
+    */
+    public static String celsius(int raw){
+        int i = raw - Units.MIN_KELVIN;
+        return i >= 0 && i < COUNT ? Tables.CELSIUS[i] : Units.fixed(Units.celsius(raw), WIDTH);
+    }
+
+    /**
+    * Return the Fahrenheit temperature as text.
+    *
+    * @param - int raw: raw Kelvin reading in 1/100ths
+    */
+    public static String fahrenheit(int raw){
+        int i = raw - Units.MIN_KELVIN;
+        return i >= 0 && i < COUNT ? Tables.FAHRENHEIT[i] : Units.fixed(Units.fahrenheit(raw), WIDTH);
+    }
+
+    /**
+    * Put the Kelvin temperature text into <buffer>.
+    *
+    * @param - ByteBuffer buffer: the destination, int raw: raw Kelvin reading in 1/100ths
+    */
+    public static void putKelvin(ByteBuffer buffer, int raw){
+        put(buffer, Tables.KELVIN_BYTES, raw, raw);
+    }
+
+    /**
+    * Put the Celsius temperature text into <buffer>.
+    *
+    * @param - ByteBuffer buffer: the destination, int raw: raw Kelvin reading in 1/100ths
+    */
+    public static void putCelsius(ByteBuffer buffer, int raw){
+        put(buffer, Tables.CELSIUS_BYTES, raw, Units.celsius(raw));
+    }
+
+    /**
+    * Put the Fahrenheit temperature text into <buffer>.
+    *
+    * @param - ByteBuffer buffer: the destination, int raw: raw Kelvin reading in 1/100ths
+    */
+    public static void putFahrenheit(ByteBuffer buffer, int raw){
+        put(buffer, Tables.FAHRENHEIT_BYTES, raw, Units.fahrenheit(raw));
+    }
+
+    /**
+    * Copy one value's bytes from <table>, or format <hundredths> if the
+    * raw reading is outside the table.
+    */
+    private static void put(ByteBuffer buffer, byte[] table, int raw, int hundredths){
+        int i = raw - Units.MIN_KELVIN;
+        if(i >= 0 && i < COUNT){
+            buffer.put(table, i * WIDTH, WIDTH);
+        }
+        else{
+            Units.putFixed(buffer, hundredths, WIDTH);
+        }
+    }
+
+    /**
+    * Format <hundredths> into entry <i> of <bytes> and return it as a String.
+    */
+    private static String fill(byte[] bytes, int i, int hundredths){
+        String text = Units.fixed(hundredths, WIDTH);
+        byte[] ascii = text.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(ascii, 0, bytes, i * WIDTH, WIDTH);
+        return text;
+    }
+
+    /**
+    * Report the memory and startup cost of the tables.
+    *
+    * @param - String[] args: nothing
+    */
+    public static void main(String[] args) throws InterruptedException{
+        long before = MetricsRegistry.usedHeap();
+
+        long start = System.nanoTime();
+        String probe = celsius(29315);      // builds the tables
+        long elapsed = System.nanoTime() - start;
+
+        long after = MetricsRegistry.usedHeap();
+
+        System.out.printf("Entries:        3 units x %d values%n", COUNT);
+        System.out.printf("Build time:     %.1f ms%n", elapsed / 1e6);
+        System.out.printf("Heap measured:  %,d bytes%n", after - before);
+        System.out.printf("Byte tables:    %,d bytes%n", 3L * COUNT * WIDTH);
+        System.out.printf("Sample:         [%s] C%n", probe);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The FileSensor class reads a real device that reports its value as a
+* line of text, for example a Linux sysfs file (such as a 1-Wire
+* thermometer's temperature file) or a serial port such as /dev/ttyUSB0
+* that prints one reading per line.
+*
+* Every read() opens the file and parses the first line as a number,
+* times a scale factor (for example 0.001 for sysfs millidegrees). A
+* serial port blocks until the device sends a line, so FileSensor is a
+* blocking sensor and the station reads it in parallel with a timeout.
+*/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class FileSensor implements Sensor{
+    private final String name;     // Name of the quantity measured.
+    private final String unit;     // Unit of the scaled value.
+    private final Path path;       // The device or file to read.
+    private final double scale;    // Multiplier applied to the value read.
+
+    /**
+    * Create a sensor that reads <path>.
+    *
+    * @param - String name: the quantity measured, String unit: its unit,
+    *          Path path: the file or device, double scale: multiplier for the value read
+    */
+    public FileSensor(String name, String unit, Path path, double scale){
+        this.name = name;
+        this.unit = unit;
+        this.path = path;
+        this.scale = scale;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public String getUnit(){
+        return unit;
+    }
+
+    /**
+    * Read the first line of the file and parse it.
+    *
+    * @return - double: the scaled value
+    */
+    public double read() throws IOException{
+        try(BufferedReader in = Files.newBufferedReader(path, StandardCharsets.US_ASCII)){
+            String line = in.readLine();
+            if(line == null){
+                throw new IOException(path + ": no reading");
+            }
+            try{
+                return Double.parseDouble(line.trim()) * scale;
+            }
+            catch(NumberFormatException e){
+                throw new IOException(path + ": not a number: " + line, e);
+            }
+        }
+    }
+
+    public boolean isBlocking(){
+        return true;
+    }
+
+    public String toString(){
+        return "FileSensor[" + name + ", " + path + "]";
+    }
+}
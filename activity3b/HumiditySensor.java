@@ -0,0 +1,75 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The HumiditySensor class is a (simulated) relative humidity sensor,
+* reporting percent relative humidity as a double precision number
+* (default 50%). Like the Barometer, the humidity follows a trend which
+* it keeps with 70% probability, and stays between 5% and 100%.
+*/
+
+import java.util.SplittableRandom;
+
+public class HumiditySensor implements Sensor{
+    private static final double MIN = 5.0;         // Minimum reading.
+    private static final double MAX = 100.0;       // Maximum reading.
+    private static final double DEFAULT = 50.0;    // Default reading.
+    private static final double CUTOFF = 0.7;      // 70% chance to continue trend.
+    private static final double MAXDELTA = 1.5;    // Maximum change per reading.
+
+    private final SplittableRandom rand;   // Simulate random changes.
+    private double humidity = DEFAULT;     // Current reading.
+    private boolean increasing = true;     // True if humidity increasing.
+
+    /**
+    * Initialize the sensor to the default value.
+    */
+    public HumiditySensor(){
+        this(new SplittableRandom());
+    }
+
+    /**
+    * Initialize the sensor to the default value, drawing its random
+    * changes from <rand>, which the sensor then owns.
+    *
+    * @param - SplittableRandom rand: the random number generator
+    */
+    public HumiditySensor(SplittableRandom rand){
+        this.rand = rand;
+    }
+
+    public String getName(){
+        return "humidity";
+    }
+
+    public String getUnit(){
+        return "%";
+    }
+
+    /**
+    * Simulate a new reading based on the last reading and the trend.
+    *
+    * @return - double: relative humidity in percent
+    */
+    public synchronized double read(){
+        if(rand.nextDouble() > CUTOFF){
+            increasing = !increasing;
+        }
+        humidity += rand.nextDouble() * MAXDELTA * (increasing ? 1 : -1);
+        if(humidity >= MAX){
+            humidity = MAX;
+            increasing = false;
+        }
+        else if(humidity <= MIN){
+            humidity = MIN;
+            increasing = true;
+        }
+        return humidity;
+    }
+}
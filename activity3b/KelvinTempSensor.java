@@ -1,81 +1,155 @@
-/*
- * Initial Author
- *      Michael J. Lutz
- *
- * Other Contributers
- *
- * Acknowledgements
- */
-
-/*
- * Class for a (simulated) sensor of the temperature. We assume the "real"
- * sensor returns a number in the range 0 .. 65535 which is calibrated to
- * be a Kelvin temperature to the nearest 100th of a degree. That is:
- *
- * 0 = 0 degrees Kelvin = -273.15 degrees Celsius
- * 27315 = 273.15 degrees Kelvin =   0.00 degrees Celsius
- * 29315 = 293.15 degrees Kelvin =  20.00 degrees Celsius
- * 65535 = 655.35 degrees Kelvin = 382.20 degrees Celsius
- */
-
-import java.util.Random ;   // to simulate random temperature fluctuations.
-
-public class KelvinTempSensor {
-    /*
-     * Min and max readings this sensor will actually report:
-     *    23315 =  -40 C
-     *    38315 =  110 C
-     * and the default (initial reading)
-     *    29315 =  20 C
-     */
-    private final int MINREADING = 23315 ;
-    private final int MAXREADING = 38315 ;
-    private final int DEFAULT = 29315 ;
-
-    private int currentReading ;         // current sensor reading
-    private boolean increasing = true ;  // TRUE if temperature tending up
-    private Random rand = new Random() ; // simulate random temp, changes.
-
-    /*
-     * Initialize the sensor to the DEFAULT value.
-     */
-    public KelvinTempSensor() {
-        currentReading = DEFAULT ;
-    }
-
-    /*
-     * Simulate a new reading based on the last reading and whether the
-     * temperature is trending up or down. We assume that the temperature
-     * has a 80% chance of continuing on its current trend and 20%
-     * chance of changing direction. Also, we will not allow changes
-     * outside of the specific min. and max. temperatures.
-     */
-    public int reading() {
-        final double CUTOFF = 0.8 ;     // 80% chance to continue temp. trend
-        final int MAXCHANGE = 200 ;     // maximum change in 1/100ths degree
-        final int MINCHANGE = 100 ;     // minimum change in 1/100ths degree
-        int temperatureChange ;         // absolute value of the temp. change
-
-        if ( rand.nextDouble() > CUTOFF ) {
-            increasing = ! increasing ;         // switch direction
-        }
-
-        temperatureChange = rand.nextInt(MAXCHANGE - MINCHANGE)
-            + MAXCHANGE ;
-        currentReading = currentReading +
-            temperatureChange * (increasing ? 1 : -1) ;
-
-        /*
-         * Limit readings to the specified (simulated) range.
-         */
-        if( currentReading >= MAXREADING ) {
-            currentReading = MAXREADING ;
-            increasing = false ;
-        } else if (currentReading <= MINREADING ) {
-            currentReading = MINREADING ;
-            increasing = true ;
-        }
-
-        return currentReading ;
-    }
-}
+/*
+ * Initial Author
+ *      Michael J. Lutz
+ *
+ * Other Contributers
+ *
+ * Acknowledgements
+ */
+
+/*
+ * Class for a (simulated) sensor of the temperature. We assume the "real"
+ * sensor returns a number in the range 0 .. 65535 which is calibrated to
+ * be a Kelvin temperature to the nearest 100th of a degree. That is:
+ *
+ * 0 = 0 degrees Kelvin = -273.15 degrees Celsius
+ * 27315 = 273.15 degrees Kelvin =   0.00 degrees Celsius
+ * 29315 = 293.15 degrees Kelvin =  20.00 degrees Celsius
+ * 65535 = 655.35 degrees Kelvin = 382.20 degrees Celsius
+ *
+ * As a Sensor it reports degrees Kelvin, so that extra thermometers
+ * can be added to a station.
+ */
+
+import java.util.Objects ;  // for bounds checks on bulk reads.
+import java.util.SplittableRandom ; // to simulate random temperature fluctuations.
+
+public class KelvinTempSensor implements Sensor {
+    /*
+     * Min and max readings this sensor will actually report:
+     *    23315 =  -40 C
+     *    38315 =  110 C
+     * and the default (initial reading)
+     *    29315 =  20 C
+     */
+    private final int MINREADING = 23315 ;
+    private final int MAXREADING = 38315 ;
+    private final int DEFAULT = 29315 ;
+
+    private int currentReading ;         // current sensor reading
+    private boolean increasing = true ;  // TRUE if temperature tending up
+    private final SplittableRandom rand ; // simulate random temp, changes.
+
+    /*
+     * Initialize the sensor to the DEFAULT value.
+     */
+    public KelvinTempSensor() {
+        this(new SplittableRandom()) ;
+    }
+
+    /*
+     * Initialize the sensor to the DEFAULT value, with a fixed seed so
+     * the same seed always produces the same sequence of readings.
+     */
+    public KelvinTempSensor(long seed) {
+        this(new SplittableRandom(seed)) ;
+    }
+
+    /*
+     * Initialize the sensor to the DEFAULT value, drawing its random
+     * changes from <rand>, which the sensor then owns.
+     */
+    public KelvinTempSensor(SplittableRandom rand) {
+        this.rand = rand ;
+        currentReading = DEFAULT ;
+    }
+
+    /*
+     * Simulate a new reading based on the last reading and whether the
+     * temperature is trending up or down. We assume that the temperature
+     * has a 80% chance of continuing on its current trend and 20%
+     * chance of changing direction. Also, we will not allow changes
+     * outside of the specific min. and max. temperatures.
+     */
+    public int reading() {
+        final double CUTOFF = 0.8 ;     // 80% chance to continue temp. trend
+        final int MAXCHANGE = 200 ;     // maximum change in 1/100ths degree
+        final int MINCHANGE = 100 ;     // minimum change in 1/100ths degree
+        int temperatureChange ;         // absolute value of the temp. change
+
+        if ( rand.nextDouble() > CUTOFF ) {
+            increasing = ! increasing ;         // switch direction
+        }
+
+        temperatureChange = rand.nextInt(MAXCHANGE - MINCHANGE)
+            + MAXCHANGE ;
+        currentReading = currentReading +
+            temperatureChange * (increasing ? 1 : -1) ;
+
+        /*
+         * Limit readings to the specified (simulated) range.
+         */
+        if( currentReading >= MAXREADING ) {
+            currentReading = MAXREADING ;
+            increasing = false ;
+        } else if (currentReading <= MINREADING ) {
+            currentReading = MINREADING ;
+            increasing = true ;
+        }
+
+        return currentReading ;
+    }
+
+    /*
+     * Fill dst[off .. off+len-1] with the next <len> readings, exactly
+     * as <len> calls to reading() would, but in one call so that the
+     * caller can acquire a whole block of samples per wakeup.
+     */
+    public int readings(int[] dst, int off, int len) {
+        final double CUTOFF = 0.8 ;     // 80% chance to continue temp. trend
+        final int MAXCHANGE = 200 ;     // maximum change in 1/100ths degree
+        final int MINCHANGE = 100 ;     // minimum change in 1/100ths degree
+
+        Objects.checkFromIndexSize(off, len, dst.length) ;
+
+        int reading = currentReading ;  // work on locals, store back once
+        boolean up = increasing ;
+
+        for ( int i = off ; i < off + len ; i++ ) {
+            if ( rand.nextDouble() > CUTOFF ) {
+                up = ! up ;                     // switch direction
+            }
+
+            reading += (rand.nextInt(MAXCHANGE - MINCHANGE) + MAXCHANGE) *
+                (up ? 1 : -1) ;
+
+            if( reading >= MAXREADING ) {
+                reading = MAXREADING ;
+                up = false ;
+            } else if (reading <= MINREADING ) {
+                reading = MINREADING ;
+                up = true ;
+            }
+            dst[i] = reading ;
+        }
+
+        currentReading = reading ;
+        increasing = up ;
+        return len ;
+    }
+
+    /*
+     * Sensor name, unit and reading (Kelvin, as a double).
+     */
+    public String getName() {
+        return "temperature" ;
+    }
+
+    public String getUnit() {
+        return "K" ;
+    }
+
+    public double read() {
+        return reading() / 100.0 ;
+    }
+}
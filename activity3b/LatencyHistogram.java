@@ -0,0 +1,172 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The LatencyHistogram class records durations in nanoseconds into
+* log-linear buckets, in the style of HdrHistogram: every power of two
+* is split into 32 equal buckets, so any recorded value is known to
+* within about 3% while the whole range from 1 ns to over an hour fits
+* in about 1,200 counters (10 KB).
+*
+* Recording is a bucket increment plus the running sum and maximum, all
+* atomic without locking or allocating. The buckets are striped like the
+* cells of a LongAdder: there is a set of counts per processor (rounded
+* up to a power of two), created on first use, and each thread counts
+* into the set picked by its thread id, so the scheduler threads of a
+* StationEngine do not contend on one shared array. Counts
+* only grow; reading the count or percentiles merges the stripes and may
+* be slightly behind concurrent recordings.
+*/
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+
+public final class LatencyHistogram{
+    private static final int SUB_BITS = 5;                 // 32 buckets per power of two.
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int MAX_BITS = 42;                // Values up to 2^42 ns, about 73 minutes.
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder sum = new LongAdder();         // Sum of values, for the mean.
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+    * Record one duration. Negative values count as 0 and values beyond
+    * the range as the largest value.
+    *
+    * @param - long nanos: the duration in ns
+    */
+    public void record(long nanos){
+        long value = Math.max(0, Math.min(MAX_VALUE, nanos));
+        stripe().getAndIncrement(index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+    * Return the calling thread's stripe of counts, creating it if needed.
+    */
+    private AtomicLongArray stripe(){
+        int i = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        AtomicLongArray counts = stripes.get(i);
+        if(counts == null){
+            stripes.compareAndSet(i, null, new AtomicLongArray(BUCKETS));
+            counts = stripes.get(i);
+        }
+        return counts;
+    }
+
+    /**
+    * Return the counts of every stripe added up, per bucket.
+    */
+    private long[] merge(){
+        long[] merged = new long[BUCKETS];
+        for(int s = 0; s < STRIPES; s++){
+            AtomicLongArray counts = stripes.get(s);
+            if(counts != null){
+                for(int i = 0; i < BUCKETS; i++){
+                    merged[i] += counts.get(i);
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+    * Return the bucket of <value>: values below 32 have a bucket each,
+    * above that each power of two has 32 buckets.
+    */
+    private static int index(long value){
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        if(shift < 0){
+            return (int) value;
+        }
+        return (shift + 1) * SUB + (int) (value >>> shift) - SUB;
+    }
+
+    /**
+    * Return the highest value that falls in bucket <index>.
+    */
+    private static long highest(int index){
+        if(index < SUB){
+            return index;
+        }
+        int shift = index / SUB - 1;
+        long base = (long) (index % SUB + SUB) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    /**
+    * Return the number of values recorded.
+    */
+    public long getCount(){
+        long n = 0;
+        for(long count : merge()){
+            n += count;
+        }
+        return n;
+    }
+
+    /**
+    * Return the mean of the values, in ns, or 0 if there are none.
+    */
+    public double getMean(){
+        long n = getCount();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    /**
+    * Return the largest value recorded, in ns.
+    */
+    public long getMax(){
+        return max.get();
+    }
+
+    /**
+    * Return the value at <percentile> (0 to 100): the top of the bucket
+    * holding it, so never lower than the true value and at most about
+    * 3% higher. Returns 0 if nothing has been recorded.
+    *
+    * @param - double percentile: for example 50, 99 or 99.9
+    */
+    public long getPercentile(double percentile){
+        long[] snapshot = merge();
+        long n = 0;
+        for(long count : snapshot){
+            n += count;
+        }
+        if(n == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += snapshot[i];
+            if(seen >= rank){
+                return Math.min(highest(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+    * Return a one line summary in microseconds.
+    */
+    public String toString(){
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                getCount(), getMean() / 1e3, getPercentile(50) / 1e3, getPercentile(99) / 1e3,
+                getPercentile(99.9) / 1e3, getMax() / 1e3);
+    }
+}
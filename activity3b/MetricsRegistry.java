@@ -0,0 +1,204 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The MetricsRegistry class holds named metrics for the running stations:
+*    - counters (LongAdder), for events such as ticks and late ticks,
+*    - latency histograms (LatencyHistogram), for durations such as a
+*      tick, a sensor read or notifying a station's observers, and
+*    - gauges, read on demand, for levels such as queue depths.
+* Metrics are created on first use and shared by name, so every station
+* in the JVM adds to the same "station.tick" histogram.
+*
+* The default registry is registered with the platform MBean server as
+* "weatherstation:type=Metrics" and can also be dumped as text.
+*
+* Metric names used by the stations:
+*    station.ticks, station.ticks.late, station.ticks.skipped  counters
+*    station.tick, station.wakeup.late, station.lock.wait,
+*    station.sensor.read, station.sensor.poll, station.dispatch  latencies
+*    sensor.timeouts, sensor.errors                             counters
+*    async.dropped, async.conflated, async.errors               counters
+*    publisher.dropped                                          counters
+*    async.blocked, async.delay                                 latencies
+*    engine.errors                                              counters
+*    engine.<n>.stations, engine.<n>.queue                      gauges
+*    server.<port>.clients, server.<port>.queue                 gauges
+*/
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class MetricsRegistry implements MetricsRegistryMXBean{
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+    * The default registry, created and registered with JMX on first use.
+    */
+    private static final class Default{
+        static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+        static{
+            try{
+                ManagementFactory.getPlatformMBeanServer().registerMBean(REGISTRY,
+                        new ObjectName("weatherstation:type=Metrics"));
+            }
+            catch(JMException e){
+                System.err.println("Metrics not registered with JMX: " + e);
+            }
+        }
+    }
+
+    /**
+    * Return the registry the stations report to.
+    */
+    public static MetricsRegistry getDefault(){
+        return Default.REGISTRY;
+    }
+
+    /**
+    * Return the counter called <name>, creating it if needed.
+    *
+    * @param - String name: the metric name
+    */
+    public LongAdder counter(String name){
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+    * Return the latency histogram called <name>, creating it if needed.
+    *
+    * @param - String name: the metric name
+    */
+    public LatencyHistogram latency(String name){
+        return latencies.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+    * Report <gauge> as <name>, replacing any gauge of that name.
+    *
+    * @param - String name: the metric name, LongSupplier gauge: reads the current value
+    */
+    public void gauge(String name, LongSupplier gauge){
+        gauges.put(name, gauge);
+    }
+
+    /**
+    * Stop reporting the gauge called <name>.
+    *
+    * @param - String name: the metric name
+    */
+    public void removeGauge(String name){
+        gauges.remove(name);
+    }
+
+    public Map<String, Long> getCounters(){
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    public Map<String, Long> getGauges(){
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    public Map<String, Long> getLatencies(){
+        Map<String, Long> values = new TreeMap<>();
+        latencies.forEach((name, h) -> {
+            values.put(name + ".count", h.getCount());
+            values.put(name + ".mean", Math.round(h.getMean()));
+            values.put(name + ".p50", h.getPercentile(50));
+            values.put(name + ".p99", h.getPercentile(99));
+            values.put(name + ".p99.9", h.getPercentile(99.9));
+            values.put(name + ".max", h.getMax());
+        });
+        return values;
+    }
+
+    /**
+    * Return every metric as text, one per line, sorted by name:
+    *
+    * counter  station.ticks          120000
+    * gauge    engine.1.queue          10000
+    * latency  station.tick           count=120000 mean=1.2us p50=1.0us ...
+    */
+    public String dump(){
+        StringBuilder text = new StringBuilder();
+        getCounters().forEach((name, value) -> text.append(String.format("counter  %-28s %d%n", name, value)));
+        getGauges().forEach((name, value) -> text.append(String.format("gauge    %-28s %d%n", name, value)));
+        new TreeMap<>(latencies).forEach((name, h) -> text.append(String.format("latency  %-28s %s%n", name, h)));
+        return text.toString();
+    }
+
+    /**
+    * Return the heap in use after encouraging a full collection, for the
+    * benchmarks that report memory per station or per sample.
+    */
+    public static long usedHeap() throws InterruptedException{
+        Runtime rt = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /**
+    * Run <stations> stations (default 1000) every <period> ms (default
+    * 100) on a StationEngine, with a ReadingHistory each and one slow
+    * Observer, and print the metrics every <seconds> seconds (default 5),
+    * three times.
+    *
+    * @param - String[] args: [stations [period [seconds]]]
+    */
+    public static void main(String[] args) throws InterruptedException{
+        int stations = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long period = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        StationEngine engine = new StationEngine();
+        for(int i = 0; i < stations; i++){
+            WeatherStation station = new WeatherStation(period);
+            station.addObserver(ReadingHistory.withBudget(16 * 1024));
+            if(i == 0){
+                station.addObserver(new SlowObserver());
+            }
+            engine.start(station);
+        }
+        for(int round = 0; round < 3; round++){
+            Thread.sleep(seconds * 1000L);
+            System.out.println(getDefault().dump());
+        }
+        engine.shutdown();
+    }
+
+    /**
+    * An Observer that takes 5 ms per update, as a display might.
+    */
+    private static final class SlowObserver implements Observer{
+        public void update(Observable obs, Object arg){
+            long until = System.nanoTime() + 5000000;
+            while(System.nanoTime() < until){
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
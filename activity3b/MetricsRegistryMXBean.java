@@ -0,0 +1,41 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The MetricsRegistryMXBean interface is the JMX view of a
+* MetricsRegistry, for jconsole, VisualVM or any JMX client. Latencies
+* are flattened into one entry per statistic, for example
+* "station.tick.p99", in nanoseconds.
+*/
+
+import java.util.Map;
+
+public interface MetricsRegistryMXBean{
+
+    /**
+    * Return every counter by name.
+    */
+    Map<String, Long> getCounters();
+
+    /**
+    * Return the current value of every gauge by name.
+    */
+    Map<String, Long> getGauges();
+
+    /**
+    * Return count, mean, p50, p99, p99.9 and max of every latency
+    * histogram, in ns, by "<name>.<statistic>".
+    */
+    Map<String, Long> getLatencies();
+
+    /**
+    * Return every metric as text, one per line.
+    */
+    String dump();
+}
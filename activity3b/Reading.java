@@ -0,0 +1,214 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The Reading class is an immutable snapshot of one WeatherStation tick:
+* the raw Kelvin sensor value (in 1/100ths of a degree), the barometer
+* pressure (in inches of mercury), when it was taken and its sequence
+* number within the station. Because it never changes it can be handed
+* to any number of subscribers on any thread without locking.
+*
+* Conversions to other units are computed from the raw values on demand,
+* either as doubles or, through Units, as fixed-point ints in 1/100ths.
+*
+* A reading also carries the values of any extra Sensors the station
+* polled in the same tick, such as humidity or wind, which can be looked
+* up by index or by sensor name.
+*/
+
+public final class Reading{
+    private static final int KTOC = -27315;       // Kelvin to Celsius conversion.
+    private static final double MB = 33.8637526;  // Inches to millibars converstion.
+
+    private final int stationId;    // Station that took the reading.
+    private final long sequence;    // Tick number within the station.
+    private final long timestamp;   // Wall clock time in ms.
+    private final int kelvin;       // Raw Kelvin sensor reading.
+    private final double pressure;  // Barometer reading in inches.
+    private final Sensor[] sensors; // Extra sensors polled, shared, not modified.
+    private final double[] values;  // Their values, in the same order.
+
+    private static final Sensor[] NO_SENSORS = new Sensor[0];
+    private static final double[] NO_VALUES = new double[0];
+
+    /**
+    * Create a reading.
+    *
+    * @param - int stationId: the station, long sequence: the tick number,
+    *          long timestamp: the time in ms, int kelvin: the raw sensor
+    *          reading, double pressure: the pressure in inches
+    */
+    public Reading(int stationId, long sequence, long timestamp, int kelvin, double pressure){
+        this(stationId, sequence, timestamp, kelvin, pressure, NO_SENSORS, NO_VALUES);
+    }
+
+    /**
+    * Create a reading with the values of extra sensors. The arrays are
+    * kept, not copied, and must not be modified afterwards.
+    *
+    * @param - int stationId: the station, long sequence: the tick number,
+    *          long timestamp: the time in ms, int kelvin: the raw sensor
+    *          reading, double pressure: the pressure in inches,
+    *          Sensor[] sensors: the extra sensors, double[] values: their values
+    */
+    public Reading(int stationId, long sequence, long timestamp, int kelvin, double pressure,
+            Sensor[] sensors, double[] values){
+        if(sensors.length != values.length){
+            throw new IllegalArgumentException(sensors.length + " sensors but " + values.length + " values");
+        }
+        this.stationId = stationId;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.kelvin = kelvin;
+        this.pressure = pressure;
+        this.sensors = sensors;
+        this.values = values;
+    }
+
+    /**
+    * Return the id of the station that took the reading.
+    */
+    public int getStationId(){
+        return stationId;
+    }
+
+    /**
+    * Return the tick number of the reading within its station.
+    */
+    public long getSequence(){
+        return sequence;
+    }
+
+    /**
+    * Return the time the reading was taken, in ms since the epoch.
+    */
+    public long getTimestamp(){
+        return timestamp;
+    }
+
+    /**
+    * Return the raw Kelvin sensor reading in 1/100ths of a degree.
+    */
+    public int getRawKelvin(){
+        return kelvin;
+    }
+
+    /**
+    * Return the reading in degrees celsius as a
+    * double precision number.
+    */
+    public double getCelsius(){
+        return (kelvin + KTOC) / 100.0;
+    }
+
+    /**
+    * Return the reading in degrees Kelvin as a
+    * double precision number.
+    */
+    public double getKelvin(){
+        return kelvin / 100.0;
+    }
+
+    /**
+    * Return the reading in degrees Fahrenheit as a
+    * double precision number.
+    */
+    public double getFahrenheit(){
+        return (9 * getCelsius() / 5) + 32;
+    }
+
+    /**
+    * Return the pressure in inches as a
+    * double precision number.
+    */
+    public double getPressureInches(){
+        return pressure;
+    }
+
+    /**
+    * Return the pressure in millibars as a
+    * double precision number.
+    */
+    public double getPressureMillibars(){
+        return pressure * MB;
+    }
+
+    /**
+    * Return the reading in 1/100ths of a degree Celsius.
+    */
+    public int getCelsiusHundredths(){
+        return Units.celsius(kelvin);
+    }
+
+    /**
+    * Return the reading in 1/100ths of a degree Fahrenheit.
+    */
+    public int getFahrenheitHundredths(){
+        return Units.fahrenheit(kelvin);
+    }
+
+    /**
+    * Return the pressure in 1/100ths of an inch.
+    */
+    public int getInchesHundredths(){
+        return Units.inches(pressure);
+    }
+
+    /**
+    * Return the pressure in 1/100ths of a millibar.
+    */
+    public int getMillibarsHundredths(){
+        return Units.millibars(pressure);
+    }
+
+    /**
+    * Return the number of extra sensor values in the reading.
+    */
+    public int getSensorCount(){
+        return sensors.length;
+    }
+
+    /**
+    * Return extra sensor <i>.
+    *
+    * @param - int i: the index, from 0 to getSensorCount() - 1
+    */
+    public Sensor getSensor(int i){
+        return sensors[i];
+    }
+
+    /**
+    * Return the value of extra sensor <i>, or NaN if it could not be read.
+    *
+    * @param - int i: the index, from 0 to getSensorCount() - 1
+    */
+    public double getValue(int i){
+        return values[i];
+    }
+
+    /**
+    * Return the value of the first extra sensor called <name>, or NaN
+    * if there is none or it could not be read.
+    *
+    * @param - String name: the sensor name, for example "humidity"
+    */
+    public double getValue(String name){
+        for(int i = 0; i < sensors.length; i++){
+            if(sensors[i].getName().equals(name)){
+                return values[i];
+            }
+        }
+        return Double.NaN;
+    }
+
+    public String toString(){
+        return "Reading[station=" + stationId + ", seq=" + sequence + ", time=" + timestamp
+                + ", kelvin=" + kelvin + ", pressure=" + pressure + "]";
+    }
+}
@@ -0,0 +1,804 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The ReadingArchive class writes station readings to a compressed,
+* column-oriented archive file for long-term storage, and its Reader
+* scans them back. Like ReadingLog it is an Observer of any number of
+* WeatherStations, but where the log keeps 32 fixed bytes per reading for
+* fast appends and crash recovery, the archive keeps each station's
+* readings in blocks of up to 1024 and stores each column on its own with
+* an encoding suited to it:
+*    - timestamps: delta-of-delta in variable width bit fields, so a
+*      station ticking at a steady period costs 1 bit per reading,
+*    - raw Kelvin: zig-zag varint deltas, 1 or 2 bytes per reading for
+*      the simulated sensor's steps of 1.00 to 3.00 degrees,
+*    - pressure: Gorilla XOR of each double with the one before, which
+*      is exact and costs less the more bits the two values share.
+*
+* File layout (big-endian):
+*
+*    0  int    magic "WSA1"
+*    4  int    readings per block
+*    then blocks, each a 64 byte header followed by its columns:
+*    0  int    station id
+*    4  int    number of readings
+*    8  long   lowest timestamp (ms)
+*   16  long   highest timestamp (ms)
+*   24  int    lowest raw Kelvin
+*   28  int    highest raw Kelvin
+*   32  double lowest pressure (inches)
+*   40  double highest pressure (inches)
+*   48  int    timestamp column bytes (a multiple of 8)
+*   52  int    Kelvin column bytes
+*   56  int    pressure column bytes (a multiple of 8)
+*   60  int    unused
+*
+* The Reader keeps the block headers as an index in memory, so a scan of
+* a time or temperature range decodes only the blocks that can hold
+* matching readings. Blocks are written whole when they fill up or the
+* archive is closed; readings still buffered when the JVM dies are lost,
+* so the archive is meant to be filled from a ReadingLog or at shutdown
+* rather than to replace it.
+*
+* The main method reports bytes per reading and decode throughput.
+*/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.SplittableRandom;
+
+public class ReadingArchive implements Observer, AutoCloseable{
+    private static final int MAGIC = 0x57534131;           // "WSA1"
+    private static final int FILE_HEADER = 8;
+    private static final int BLOCK_HEADER = 64;
+
+    /**
+    * The readings of one station waiting to fill a block.
+    */
+    private static final class Pending{
+        final int stationId;
+        final long[] times;
+        final int[] kelvins;
+        final double[] pressures;
+        int count;
+
+        Pending(int stationId, int size){
+            this.stationId = stationId;
+            times = new long[size];
+            kelvins = new int[size];
+            pressures = new double[size];
+        }
+    }
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final Map<Integer, Pending> pending = new HashMap<>();
+    private final BitWriter bits = new BitWriter();        // Reused for every block.
+    private byte[] varints = new byte[64];
+    private long readings;
+    private long bytes = FILE_HEADER;
+
+    /**
+    * Create (or replace) an archive at <file> with 1024 readings per block.
+    *
+    * @param - Path file: the archive file
+    */
+    public ReadingArchive(Path file) throws IOException{
+        this(file, 1024);
+    }
+
+    /**
+    * Create (or replace) an archive at <file> with up to <blockSize>
+    * readings of a station per block. Larger blocks compress a little
+    * better but buffer more per station and skip less in a scan.
+    *
+    * @param - Path file: the archive file, int blockSize: readings per block
+    */
+    public ReadingArchive(Path file, int blockSize) throws IOException{
+        if(blockSize <= 0){
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putInt(blockSize);
+        header.flip();
+        writeFully(header);
+    }
+
+    /**
+    * Called by a station with its new Reading.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        if(arg instanceof Reading){
+            Reading reading = (Reading) arg;
+            try{
+                append(reading.getStationId(), reading.getTimestamp(), reading.getRawKelvin(),
+                        reading.getPressureInches());
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+    * Add one reading, writing its station's block if it is now full.
+    *
+    * @param - int stationId: the station, long timestamp: ms since the epoch,
+    *          int kelvin: raw Kelvin reading, double pressure: inches
+    */
+    public synchronized void append(int stationId, long timestamp, int kelvin, double pressure) throws IOException{
+        Pending block = pending.get(stationId);
+        if(block == null){
+            block = new Pending(stationId, blockSize);
+            pending.put(stationId, block);
+        }
+        block.times[block.count] = timestamp;
+        block.kelvins[block.count] = kelvin;
+        block.pressures[block.count] = pressure;
+        if(++block.count == blockSize){
+            writeBlock(block);
+            block.count = 0;
+        }
+        readings++;
+    }
+
+    /**
+    * Return the number of readings appended.
+    */
+    public synchronized long getReadingCount(){
+        return readings;
+    }
+
+    /**
+    * Return the number of bytes written so far; buffered readings are
+    * not included until their block is written.
+    */
+    public synchronized long getBytesWritten(){
+        return bytes;
+    }
+
+    /**
+    * Write every partly filled block and close the file.
+    */
+    public synchronized void close() throws IOException{
+        if(!channel.isOpen()){
+            return;
+        }
+        for(Pending block : pending.values()){
+            if(block.count > 0){
+                writeBlock(block);
+                block.count = 0;
+            }
+        }
+        pending.clear();
+        channel.close();
+    }
+
+    /**
+    * Encode <block>'s readings and append them to the file.
+    */
+    private void writeBlock(Pending block) throws IOException{
+        int n = block.count;
+        long minTime = Long.MAX_VALUE, maxTime = Long.MIN_VALUE;
+        int minKelvin = Integer.MAX_VALUE, maxKelvin = Integer.MIN_VALUE;
+        double minPressure = Double.POSITIVE_INFINITY, maxPressure = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < n; i++){
+            minTime = Math.min(minTime, block.times[i]);
+            maxTime = Math.max(maxTime, block.times[i]);
+            minKelvin = Math.min(minKelvin, block.kelvins[i]);
+            maxKelvin = Math.max(maxKelvin, block.kelvins[i]);
+            minPressure = Math.min(minPressure, block.pressures[i]);
+            maxPressure = Math.max(maxPressure, block.pressures[i]);
+        }
+
+        bits.reset();
+        encodeTimes(block.times, n, bits);
+        long[] timeColumn = bits.toWords();
+        int kelvinBytes = encodeKelvins(block.kelvins, n);
+        bits.reset();
+        encodePressures(block.pressures, n, bits);
+        long[] pressureColumn = bits.toWords();
+
+        int length = BLOCK_HEADER + timeColumn.length * 8 + kelvinBytes + pressureColumn.length * 8;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(block.stationId).putInt(n)
+                .putLong(minTime).putLong(maxTime)
+                .putInt(minKelvin).putInt(maxKelvin)
+                .putDouble(minPressure).putDouble(maxPressure)
+                .putInt(timeColumn.length * 8).putInt(kelvinBytes).putInt(pressureColumn.length * 8).putInt(0);
+        buffer.asLongBuffer().put(timeColumn);
+        buffer.position(buffer.position() + timeColumn.length * 8);
+        buffer.put(varints, 0, kelvinBytes);
+        buffer.asLongBuffer().put(pressureColumn);
+        buffer.position(length);
+        buffer.flip();
+        writeFully(buffer);
+        bytes += length;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException{
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+    }
+
+    /**
+    * Return <v> with the sign moved to the low bit, so that small
+    * negative numbers are small too: 0, -1, 1, -2 ... become 0, 1, 2, 3 ...
+    */
+    private static long zigzag(long v){
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v){
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+    * Timestamps: the first in full, then the change in the gap between
+    * readings, zig-zagged, as '0' if none, '10' and 7 bits, '110' and 9
+    * bits, '1110' and 12 bits, or '1111' and 64 bits.
+    */
+    private static void encodeTimes(long[] times, int n, BitWriter out){
+        out.write(times[0], 64);
+        long previousDelta = 0;
+        for(int i = 1; i < n; i++){
+            long delta = times[i] - times[i - 1];
+            long dod = zigzag(delta - previousDelta);
+            previousDelta = delta;
+            if(dod == 0){
+                out.write(0b0, 1);
+            }
+            else if(dod < 1 << 7){
+                out.write(0b10L << 7 | dod, 9);
+            }
+            else if(dod < 1 << 9){
+                out.write(0b110L << 9 | dod, 12);
+            }
+            else if(dod < 1 << 12){
+                out.write(0b1110L << 12 | dod, 16);
+            }
+            else{
+                out.write(0b1111, 4);
+                out.write(dod, 64);
+            }
+        }
+    }
+
+    private static void decodeTimes(BitReader in, long[] times, int n){
+        long time = in.read(64);
+        long delta = 0;
+        times[0] = time;
+        for(int i = 1; i < n; i++){
+            long dod;
+            if(in.read(1) == 0){
+                dod = 0;
+            }
+            else if(in.read(1) == 0){
+                dod = in.read(7);
+            }
+            else if(in.read(1) == 0){
+                dod = in.read(9);
+            }
+            else if(in.read(1) == 0){
+                dod = in.read(12);
+            }
+            else{
+                dod = in.read(64);
+            }
+            delta += unzigzag(dod);
+            time += delta;
+            times[i] = time;
+        }
+    }
+
+    /**
+    * Raw Kelvin: each reading's change from the one before (the first
+    * from 0), zig-zagged, as a varint of 7 bits per byte, low bits first,
+    * into <varints>. Returns the number of bytes.
+    */
+    private int encodeKelvins(int[] kelvins, int n){
+        if(varints.length < n * 5){
+            varints = new byte[n * 5];
+        }
+        int length = 0;
+        int previous = 0;
+        for(int i = 0; i < n; i++){
+            int v = (int) zigzag((long) kelvins[i] - previous);
+            previous = kelvins[i];
+            while((v & ~0x7F) != 0){
+                varints[length++] = (byte) (v & 0x7F | 0x80);
+                v >>>= 7;
+            }
+            varints[length++] = (byte) v;
+        }
+        return length;
+    }
+
+    private static void decodeKelvins(ByteBuffer map, int offset, int[] kelvins, int n){
+        int previous = 0;
+        for(int i = 0; i < n; i++){
+            int b = map.get(offset++);
+            int v = b & 0x7F;
+            for(int shift = 7; b < 0; shift += 7){
+                b = map.get(offset++);
+                v |= (b & 0x7F) << shift;
+            }
+            previous += (v >>> 1) ^ -(v & 1);
+            kelvins[i] = previous;
+        }
+    }
+
+    /**
+    * Pressure, Gorilla style: the first value's bits in full, then each
+    * value XORed with the one before as '0' if equal, '10' and the
+    * changed bits if they fit the previous window of changed bits, or
+    * '11', 5 bits of leading zeros, 6 bits of length and the changed
+    * bits otherwise.
+    */
+    private static void encodePressures(double[] pressures, int n, BitWriter out){
+        long previous = Double.doubleToRawLongBits(pressures[0]);
+        out.write(previous, 64);
+        int leading = -1, trailing = 0;                     // No window yet.
+        for(int i = 1; i < n; i++){
+            long value = Double.doubleToRawLongBits(pressures[i]);
+            long xor = value ^ previous;
+            previous = value;
+            if(xor == 0){
+                out.write(0b0, 1);
+                continue;
+            }
+            int lead = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int trail = Long.numberOfTrailingZeros(xor);
+            if(leading >= 0 && lead >= leading && trail >= trailing){
+                out.write(0b10, 2);
+                out.write(xor >>> trailing, 64 - leading - trailing);
+            }
+            else{
+                int length = 64 - lead - trail;
+                out.write(0b11L << 11 | (long) lead << 6 | (length & 63), 13);
+                out.write(xor >>> trail, length);
+                leading = lead;
+                trailing = trail;
+            }
+        }
+    }
+
+    private static void decodePressures(BitReader in, double[] pressures, int n){
+        long value = in.read(64);
+        pressures[0] = Double.longBitsToDouble(value);
+        int leading = 0, trailing = 0;
+        for(int i = 1; i < n; i++){
+            if(in.read(1) != 0){
+                if(in.read(1) != 0){
+                    long control = in.read(11);
+                    leading = (int) (control >>> 6);
+                    int length = (int) (control & 63);
+                    trailing = 64 - leading - (length == 0 ? 64 : length);
+                }
+                value ^= in.read(64 - leading - trailing) << trailing;
+            }
+            pressures[i] = Double.longBitsToDouble(value);
+        }
+    }
+
+    /**
+    * Packs bit fields, most significant bit first, into 64-bit words.
+    */
+    private static final class BitWriter{
+        private long[] words = new long[64];
+        private int count;              // Whole words written.
+        private long current;
+        private int used;               // Bits used in current.
+
+        void reset(){
+            count = 0;
+            current = 0;
+            used = 0;
+        }
+
+        /**
+        * Append the low <n> bits of <value>, 1 <= n <= 64.
+        */
+        void write(long value, int n){
+            if(n < 64){
+                value &= (1L << n) - 1;
+            }
+            int free = 64 - used;
+            if(n < free){
+                current |= value << (free - n);
+                used += n;
+            }
+            else{
+                int over = n - free;                        // Bits that spill into the next word.
+                push(current | value >>> over);
+                current = over == 0 ? 0 : value << (64 - over);
+                used = over;
+            }
+        }
+
+        private void push(long word){
+            if(count == words.length){
+                words = Arrays.copyOf(words, count * 2);
+            }
+            words[count++] = word;
+        }
+
+        /**
+        * Return the words written, the last one padded with zeros.
+        */
+        long[] toWords(){
+            long[] result = Arrays.copyOf(words, count + (used > 0 ? 1 : 0));
+            if(used > 0){
+                result[count] = current;
+            }
+            return result;
+        }
+    }
+
+    /**
+    * Reads bit fields written by a BitWriter from 64-bit words in a
+    * buffer.
+    */
+    private static final class BitReader{
+        private final ByteBuffer map;
+        private int next;               // Offset of the next word.
+        private long current;
+        private int left;               // Bits not yet read from current.
+
+        BitReader(ByteBuffer map, int offset){
+            this.map = map;
+            this.next = offset;
+        }
+
+        /**
+        * Return the next <n> bits, 1 <= n <= 64.
+        */
+        long read(int n){
+            if(n <= left){
+                left -= n;
+                long bits = current >>> left;
+                return n == 64 ? bits : bits & ((1L << n) - 1);
+            }
+            int need = n - left;
+            long high = left == 0 ? 0 : current & ((1L << left) - 1);
+            current = map.getLong(next);
+            next += 8;
+            left = 64 - need;
+            return need == 64 ? current : high << need | current >>> left;
+        }
+    }
+
+    /**
+    * Reads an archive through a read-only memory mapping, with an index
+    * of its block headers for skipping blocks in range scans. Archives
+    * up to 2 GB can be mapped.
+    */
+    public static final class Reader implements AutoCloseable{
+        private final FileChannel channel;
+        private final MappedByteBuffer map;
+        private final int blockSize;
+        private final int blocks;
+        private final int[] offsets;
+        private final int[] stations;
+        private final int[] counts;
+        private final long[] minTimes;
+        private final long[] maxTimes;
+        private final int[] minKelvins;
+        private final int[] maxKelvins;
+        private final long[] columnBytes = new long[3];    // Timestamps, Kelvin, pressure.
+        private long readings;
+
+        /**
+        * Open the archive at <file> and read its block index. The index
+        * ends at the first block that is not whole, such as one cut short
+        * by a crash while it was written, so the blocks before it can
+        * still be read.
+        *
+        * @param - Path file: the archive file
+        */
+        public Reader(Path file) throws IOException{
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            long size = channel.size();
+            if(size > Integer.MAX_VALUE){
+                channel.close();
+                throw new IOException("Archive too large to map: " + file);
+            }
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if(size < FILE_HEADER || map.getInt(0) != MAGIC){
+                channel.close();
+                throw new IOException("Not a reading archive: " + file);
+            }
+            blockSize = map.getInt(4);
+
+            int n = 0;
+            for(int offset = FILE_HEADER; offset + BLOCK_HEADER <= size; offset += blockLength(offset)){
+                long length = blockLength(offset);
+                if(length < 0 || offset + length > size){
+                    break;                      // torn or damaged block: the index stops before it
+                }
+                n++;
+            }
+            blocks = n;
+            offsets = new int[n];
+            stations = new int[n];
+            counts = new int[n];
+            minTimes = new long[n];
+            maxTimes = new long[n];
+            minKelvins = new int[n];
+            maxKelvins = new int[n];
+            int offset = FILE_HEADER;
+            for(int i = 0; i < n; i++){
+                offsets[i] = offset;
+                stations[i] = map.getInt(offset);
+                counts[i] = map.getInt(offset + 4);
+                minTimes[i] = map.getLong(offset + 8);
+                maxTimes[i] = map.getLong(offset + 16);
+                minKelvins[i] = map.getInt(offset + 24);
+                maxKelvins[i] = map.getInt(offset + 28);
+                for(int c = 0; c < 3; c++){
+                    columnBytes[c] += map.getInt(offset + 48 + 4 * c);
+                }
+                readings += counts[i];
+                offset += (int) blockLength(offset);
+            }
+        }
+
+        /**
+        * Return the length of the block at <offset>, header included, or
+        * -1 if its header cannot be a block's: a count outside 1 to the
+        * block size, or column lengths that are negative or misaligned.
+        */
+        private long blockLength(int offset){
+            int count = map.getInt(offset + 4);
+            int timeBytes = map.getInt(offset + 48);
+            int kelvinBytes = map.getInt(offset + 52);
+            int pressureBytes = map.getInt(offset + 56);
+            if(count <= 0 || count > blockSize || timeBytes < 0 || kelvinBytes < 0 || pressureBytes < 0
+                    || timeBytes % 8 != 0 || pressureBytes % 8 != 0){
+                return -1;
+            }
+            return (long) BLOCK_HEADER + timeBytes + kelvinBytes + pressureBytes;
+        }
+
+        /**
+        * Return the number of blocks.
+        */
+        public int getBlockCount(){
+            return blocks;
+        }
+
+        /**
+        * Return the most readings a block can hold.
+        */
+        public int getBlockSize(){
+            return blockSize;
+        }
+
+        /**
+        * Return the number of readings in the archive.
+        */
+        public long getReadingCount(){
+            return readings;
+        }
+
+        /**
+        * Return the bytes taken by the timestamp, Kelvin and pressure
+        * columns over all blocks.
+        */
+        public long[] getColumnBytes(){
+            return columnBytes.clone();
+        }
+
+        /**
+        * Return the station id of block <block>.
+        */
+        public int getStationId(int block){
+            return stations[block];
+        }
+
+        /**
+        * Decode block <block> into the arrays, which must hold at least
+        * getBlockSize() values, and return the number of readings.
+        *
+        * @param - int block: the block index, long[] times, int[] kelvins,
+        *          double[] pressures: receive the columns
+        * @return - int: the number of readings decoded
+        */
+        public int decode(int block, long[] times, int[] kelvins, double[] pressures){
+            int offset = offsets[block];
+            int n = counts[block];
+            int timeBytes = map.getInt(offset + 48);
+            int kelvinBytes = map.getInt(offset + 52);
+            int columns = offset + BLOCK_HEADER;
+            decodeTimes(new BitReader(map, columns), times, n);
+            decodeKelvins(map, columns + timeBytes, kelvins, n);
+            decodePressures(new BitReader(map, columns + timeBytes + kelvinBytes), pressures, n);
+            return n;
+        }
+
+        /**
+        * Return true if block <block> can hold readings taken from <from>
+        * to <to> with raw Kelvin from <minKelvin> to <maxKelvin>.
+        */
+        private boolean overlaps(int block, long from, long to, int minKelvin, int maxKelvin){
+            return minTimes[block] <= to && maxTimes[block] >= from
+                    && minKelvins[block] <= maxKelvin && maxKelvins[block] >= minKelvin;
+        }
+
+        /**
+        * Return the number of blocks a scan of the range would decode.
+        *
+        * @param - long from, long to: time range in ms, inclusive,
+        *          int minKelvin, int maxKelvin: raw Kelvin range, inclusive
+        */
+        public int countBlocks(long from, long to, int minKelvin, int maxKelvin){
+            int n = 0;
+            for(int i = 0; i < blocks; i++){
+                if(overlaps(i, from, to, minKelvin, maxKelvin)){
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        /**
+        * Give <visitor> every reading taken from <from> to <to>.
+        *
+        * @param - long from, long to: time range in ms, inclusive, ReadingLog.Visitor visitor: receives the readings
+        * @return - long: the number of readings visited
+        */
+        public long scan(long from, long to, ReadingLog.Visitor visitor){
+            return scan(from, to, Integer.MIN_VALUE, Integer.MAX_VALUE, visitor);
+        }
+
+        /**
+        * Give <visitor> every reading taken from <from> to <to> with a raw
+        * Kelvin reading from <minKelvin> to <maxKelvin>, in block order,
+        * decoding only the blocks whose index says they can hold one.
+        *
+        * @param - long from, long to: time range in ms, inclusive,
+        *          int minKelvin, int maxKelvin: raw Kelvin range, inclusive,
+        *          ReadingLog.Visitor visitor: receives the readings
+        * @return - long: the number of readings visited
+        */
+        public long scan(long from, long to, int minKelvin, int maxKelvin, ReadingLog.Visitor visitor){
+            long[] times = new long[blockSize];
+            int[] kelvins = new int[blockSize];
+            double[] pressures = new double[blockSize];
+            long visited = 0;
+            for(int i = 0; i < blocks; i++){
+                if(!overlaps(i, from, to, minKelvin, maxKelvin)){
+                    continue;
+                }
+                int n = decode(i, times, kelvins, pressures);
+                for(int j = 0; j < n; j++){
+                    if(times[j] >= from && times[j] <= to && kelvins[j] >= minKelvin && kelvins[j] <= maxKelvin){
+                        visitor.visit(stations[i], times[j], kelvins[j], pressures[j]);
+                        visited++;
+                    }
+                }
+            }
+            return visited;
+        }
+
+        public void close() throws IOException{
+            channel.close();
+        }
+    }
+
+    /**
+    * Mix all the fields of one reading into 64 bits, so that summing the
+    * hashes checks every column regardless of the order of the blocks.
+    */
+    private static long hash(int stationId, long time, int kelvin, double pressure){
+        long h = (time * 0x9E3779B97F4A7C15L + stationId) * 0xBF58476D1CE4E5B9L + kelvin;
+        h = (h ^ h >>> 31) * 0x94D049BB133111EBL + Double.doubleToRawLongBits(pressure);
+        return h ^ h >>> 29;
+    }
+
+    /**
+    * Archive <readings> simulated readings (default 10M) from <stations>
+    * stations (default 1000) ticking every 100 ms with up to 2 ms of
+    * jitter, check that they read back exactly, and report the bytes per
+    * reading and per column, the decode throughput and a range scan.
+    *
+    * @param - String[] args: [readings [stations]]
+    */
+    public static void main(String[] args) throws IOException{
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int stationCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Path file = Files.createTempFile("readings", ".wsa");
+        long epoch = 1700000000000L;
+        int perStation = total / stationCount;
+
+        KelvinTempSensor[] sensors = new KelvinTempSensor[stationCount];
+        Barometer[] barometers = new Barometer[stationCount];
+        for(int s = 0; s < stationCount; s++){
+            sensors[s] = new KelvinTempSensor(s);
+            barometers[s] = new Barometer(s);
+        }
+        SplittableRandom jitter = new SplittableRandom(42);
+        long checksum = 0;
+        long start = System.nanoTime();
+        try(ReadingArchive archive = new ReadingArchive(file)){
+            for(int i = 0; i < perStation; i++){
+                for(int s = 0; s < stationCount; s++){
+                    int kelvin = sensors[s].reading();
+                    double pressure = barometers[s].pressure();
+                    long time = epoch + i * 100L + jitter.nextInt(3);
+                    checksum += hash(s, time, kelvin, pressure);
+                    archive.append(s, time, kelvin, pressure);
+                }
+            }
+        }
+        long written = System.nanoTime() - start;
+
+        try(Reader reader = new Reader(file)){
+            long readings = reader.getReadingCount();
+            long size = Files.size(file);
+            long[] columns = reader.getColumnBytes();
+            System.out.printf("Archived %,d readings in %d ms: %,d bytes, %.2f bytes/reading"
+                    + " (ReadingLog: %d, raw columns: 20)%n", readings, written / 1000000, size,
+                    (double) size / readings, ReadingLog.RECORD_SIZE);
+            System.out.printf("  timestamps %.2f, Kelvin %.2f, pressure %.2f, headers %.2f bytes/reading%n",
+                    (double) columns[0] / readings, (double) columns[1] / readings, (double) columns[2] / readings,
+                    (double) (size - columns[0] - columns[1] - columns[2]) / readings);
+
+            long[] times = new long[reader.getBlockSize()];
+            int[] kelvins = new int[reader.getBlockSize()];
+            double[] pressures = new double[reader.getBlockSize()];
+            long check = 0;
+            for(int b = 0; b < reader.getBlockCount(); b++){
+                int n = reader.decode(b, times, kelvins, pressures);
+                for(int j = 0; j < n; j++){
+                    check += hash(reader.getStationId(b), times[j], kelvins[j], pressures[j]);
+                }
+            }
+            System.out.println(check == checksum ? "Round trip exact" : "ROUND TRIP MISMATCH");
+
+            long best = Long.MAX_VALUE;
+            for(int round = 0; round < 5; round++){
+                long t0 = System.nanoTime();
+                for(int b = 0; b < reader.getBlockCount(); b++){
+                    reader.decode(b, times, kelvins, pressures);
+                }
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            System.out.printf("Decode: %,.0f readings/sec, %.2f GB/s of decoded columns, %.2f GB/s of archive%n",
+                    readings * 1e9 / best, readings * 20.0 / best, size * 1.0 / best);
+
+            long from = epoch + perStation * 90L;               // The last tenth of the time range,
+            int cold = 27315;                                   // below freezing.
+            long t0 = System.nanoTime();
+            long found = reader.scan(from, Long.MAX_VALUE, Integer.MIN_VALUE, cold, (id, time, kelvin, p) -> { });
+            long scanned = System.nanoTime() - t0;
+            System.out.printf("Scan of the last 10%% below 0 C: %,d readings from %d of %d blocks in %.1f ms%n",
+                    found, reader.countBlocks(from, Long.MAX_VALUE, Integer.MIN_VALUE, cold), reader.getBlockCount(),
+                    scanned / 1e6);
+        }
+        Files.delete(file);
+    }
+}
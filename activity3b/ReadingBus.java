@@ -0,0 +1,367 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The ReadingBus class is a lock-free publish/subscribe bus for Reading
+* objects. Publishers (usually WeatherStations) write each reading once
+* into a fixed size ring of slots allocated up front; every subscriber
+* has its own daemon thread that follows the ring at its own pace and
+* receives the readings in batches.
+*
+* Publishing never waits for the subscribers, so its cost stays flat no
+* matter how many are attached. The price is that a subscriber which
+* falls more than a full ring behind loses the oldest readings; the
+* number lost is counted in its Subscription.
+*
+* A subscriber that has caught up spins briefly and then parks until a
+* publisher wakes it, so idle subscribers cost no CPU however many there
+* are. Publishers only look at the subscribers when some are parked: a
+* publish then unparks those, and costs more than one into a busy bus.
+*
+* The main method is a benchmark of publish latency against the number
+* of subscribers.
+*/
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+public class ReadingBus{
+
+    /**
+    * Receives readings from the bus. Only the first <count> entries of
+    * <batch> are valid and the array is reused after the call returns.
+    */
+    public interface Subscriber{
+        void onReadings(Reading[] batch, int count);
+    }
+
+    /**
+    * A ring slot, reused for every sequence that maps to it. Its version
+    * says which sequence it holds, so that a reader can always tell
+    * whether the slot holds the value it wants, an older one, or one
+    * that has already lapped it: 0 while empty, 2s + 1 while sequence s
+    * is being written and 2s + 2 once it is. A reader takes the reading
+    * between two reads of the version and keeps it only if they agree.
+    */
+    private static final class Slot{
+        private static final AtomicLongFieldUpdater<Slot> VERSION =
+                AtomicLongFieldUpdater.newUpdater(Slot.class, "version");
+
+        volatile long version;
+        volatile Reading reading;
+    }
+
+    private final int mask;                                 // capacity - 1
+    private final Slot[] ring;
+    private final AtomicLong next = new AtomicLong();       // next sequence to claim
+    private volatile Subscription[] subscriptions = new Subscription[0];  // Copied on change.
+    private final AtomicInteger parked = new AtomicInteger();  // subscriptions parked or about to park
+
+    /**
+    * Create a bus with room for 4096 readings in flight.
+    */
+    public ReadingBus(){
+        this(4096);
+    }
+
+    /**
+    * Create a bus holding up to <capacity> readings in flight.
+    *
+    * @param - int capacity: ring size, must be a power of two
+    */
+    public ReadingBus(int capacity){
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        ring = new Slot[capacity];
+        for(int i = 0; i < capacity; i++){
+            ring[i] = new Slot();
+        }
+    }
+
+    /**
+    * Publish a reading to every subscriber. Safe to call from any
+    * number of threads at once.
+    *
+    * @param - Reading reading: the reading to publish
+    */
+    public void publish(Reading reading){
+        long sequence = next.getAndIncrement();
+        Slot slot = ring[(int)(sequence & mask)];
+        long writing = 2 * sequence + 1;
+
+        // Only ever move a slot forward; a publisher that was lapped
+        // while claiming simply loses its (already overwritten) slot. A
+        // slot still being written for an older sequence is waited for,
+        // as its writer has yet to store its reading.
+        int spins = 0;
+        while(true){
+            long version = slot.version;
+            if(version >= writing){
+                break;
+            }
+            if((version & 1) == 0 && Slot.VERSION.compareAndSet(slot, version, writing)){
+                slot.reading = reading;
+                slot.version = writing + 1;
+                break;
+            }
+            if(++spins > 64){
+                Thread.yield();
+            }
+            else{
+                Thread.onSpinWait();
+            }
+        }
+        if(parked.get() > 0){
+            wakeAll();
+        }
+    }
+
+    /**
+    * Unpark every subscription that is parked waiting for readings.
+    */
+    private void wakeAll(){
+        for(Subscription subscription : subscriptions){
+            subscription.wake();
+        }
+    }
+
+    private synchronized void add(Subscription subscription){
+        Subscription[] next = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        next[subscriptions.length] = subscription;
+        subscriptions = next;
+    }
+
+    private synchronized void remove(Subscription subscription){
+        Subscription[] current = subscriptions;
+        for(int i = 0; i < current.length; i++){
+            if(current[i] == subscription){
+                Subscription[] next = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+                subscriptions = next;
+                return;
+            }
+        }
+    }
+
+    /**
+    * Subscribe with batches of up to 64 readings.
+    *
+    * @param - Subscriber subscriber: the receiver of readings
+    * @return - Subscription: handle used to cancel and inspect the subscription
+    */
+    public Subscription subscribe(Subscriber subscriber){
+        return subscribe(subscriber, 64);
+    }
+
+    /**
+    * Subscribe, receiving only readings published from now on, in
+    * batches of up to <maxBatch> readings.
+    *
+    * @param - Subscriber subscriber: the receiver of readings,
+    *          int maxBatch: the largest batch to deliver
+    * @return - Subscription: handle used to cancel and inspect the subscription
+    */
+    public Subscription subscribe(Subscriber subscriber, int maxBatch){
+        Subscription subscription = new Subscription(subscriber, maxBatch, next.get());
+        add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+    * Return the number of readings published so far.
+    */
+    public long published(){
+        return next.get();
+    }
+
+    /**
+    * One subscriber's position in the ring and the thread that follows it.
+    */
+    public final class Subscription implements Runnable{
+        private final Subscriber subscriber;
+        private final Reading[] batch;
+        private final Thread thread;
+        private final AtomicBoolean parking = new AtomicBoolean();  // counted in parked
+        private volatile boolean cancelled;
+        private volatile long delivered;
+        private volatile long missed;
+        private long position;
+
+        private Subscription(Subscriber subscriber, int maxBatch, long position){
+            if(maxBatch <= 0){
+                throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+            }
+            this.subscriber = subscriber;
+            this.batch = new Reading[maxBatch];
+            this.position = position;
+            thread = new Thread(this, "reading-bus-subscriber");
+            thread.setDaemon(true);
+        }
+
+        /**
+        * Stop delivering readings. The subscriber thread exits after
+        * its current batch.
+        */
+        public void cancel(){
+            cancelled = true;
+            remove(this);
+            LockSupport.unpark(thread);
+        }
+
+        /**
+        * Return the number of readings delivered to the subscriber.
+        */
+        public long getDelivered(){
+            return delivered;
+        }
+
+        /**
+        * Return the number of readings lost because the subscriber
+        * fell more than a full ring behind.
+        */
+        public long getMissed(){
+            return missed;
+        }
+
+        /**
+        * Follow the ring, delivering batches, and wait when idle.
+        */
+        public void run(){
+            int idle = 0;
+            while(!cancelled){
+                int count = poll();
+                if(count > 0){
+                    subscriber.onReadings(batch, count);
+                    Arrays.fill(batch, 0, count, null);
+                    delivered += count;
+                    idle = 0;
+                }
+                else{
+                    idle = backOff(idle);
+                }
+            }
+        }
+
+        /**
+        * Gather up to one batch of readings from the ring.
+        *
+        * @return - int count: the number of readings gathered
+        */
+        private int poll(){
+            long oldest = next.get() - (mask + 1);
+            if(position < oldest){
+                missed += oldest - position;
+                position = oldest;
+            }
+
+            int count = 0;
+            while(count < batch.length){
+                Slot slot = ring[(int)(position & mask)];
+                long version = slot.version;
+                long wanted = 2 * position + 2;
+                if(version < wanted){
+                    break;                      // not published yet
+                }
+                Reading reading = slot.reading;
+                if(version == wanted && slot.version == wanted){
+                    batch[count++] = reading;
+                }
+                else{
+                    missed++;                   // lapped while we were reading
+                }
+                position++;
+            }
+            return count;
+        }
+
+        /**
+        * Spin briefly, then yield a few times, then park until a
+        * publisher or cancel() wakes the thread, so that idle
+        * subscribers do not steal CPU time from the publishers. The
+        * subscription is counted as parked before it looks at the ring
+        * one last time, so a reading published in between always wakes
+        * it.
+        *
+        * @param - int idle: the number of empty polls so far
+        * @return - int idle: the updated count
+        */
+        private int backOff(int idle){
+            if(idle < 16){
+                Thread.onSpinWait();
+            }
+            else if(idle < 32){
+                Thread.yield();
+            }
+            else{
+                parking.set(true);
+                parked.incrementAndGet();
+                if(next.get() == position && !cancelled){
+                    LockSupport.park(this);
+                }
+                if(parking.compareAndSet(true, false)){
+                    parked.decrementAndGet();       // not woken by a publisher
+                }
+            }
+            return idle + 1;
+        }
+
+        /**
+        * If the subscription is parked, stop counting it as parked and
+        * unpark its thread.
+        */
+        private void wake(){
+            if(parking.compareAndSet(true, false)){
+                parked.decrementAndGet();
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+    * Benchmark: measure the median and 99th percentile time of a single
+    * publish() with 0 to 512 subscribers attached.
+    *
+    * @param - String[] args: [readings per round]
+    */
+    public static void main(String[] args){
+        int readings = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        Reading reading = new Reading(0, 0, System.currentTimeMillis(), 29315, 29.92);
+        long[] times = new long[readings];
+
+        for(int subscribers = 0; subscribers <= 512; subscribers = subscribers == 0 ? 1 : subscribers * 8){
+            ReadingBus bus = new ReadingBus(1 << 16);
+            Subscription[] subs = new Subscription[subscribers];
+            for(int i = 0; i < subscribers; i++){
+                subs[i] = bus.subscribe((batch, count) -> { });
+            }
+            for(int i = 0; i < readings; i++){
+                bus.publish(reading);           // warm up
+            }
+            for(int i = 0; i < readings; i++){
+                long start = System.nanoTime();
+                bus.publish(reading);
+                times[i] = System.nanoTime() - start;
+            }
+            for(Subscription sub : subs){
+                sub.cancel();
+            }
+            Arrays.sort(times);
+            System.out.printf("Subscribers: %4d   publish median: %5d ns   p99: %6d ns%n",
+                    subscribers, times[readings / 2], times[readings * 99 / 100]);
+        }
+    }
+}
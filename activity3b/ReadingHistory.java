@@ -0,0 +1,270 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The ReadingHistory class is a bounded history of one station's readings.
+* It is an Observer of the WeatherStation and records every tick.
+*
+* Samples are kept in three primitive ring buffers: the raw Kelvin reading,
+* the pressure as a fixed-point int in 1/10000ths of an inch, and the
+* timestamp. That is 16 bytes per sample with no boxing, so the capacity
+* can be chosen directly from a memory budget. Once full, the oldest sample
+* is overwritten.
+*
+* Timestamps are assumed to be non-decreasing, which lets range queries by
+* time use a binary search.
+*
+* The main method reports the bytes per sample of a million sample history.
+*/
+
+import java.util.Observable;
+import java.util.Observer;
+
+public class ReadingHistory implements Observer{
+    /**
+    * Heap bytes used by one sample: int Kelvin + int pressure + long time.
+    */
+    public static final int BYTES_PER_SAMPLE = 4 + 4 + 8;
+
+    private static final double SCALE = 10000.0;    // Fixed-point pressure scale.
+
+    private final int[] kelvins;        // Raw Kelvin readings.
+    private final int[] pressures;      // Pressure in 1/10000ths of an inch.
+    private final long[] timestamps;    // Time of each sample in ms.
+
+    private int head;                   // Index of the oldest sample.
+    private int size;                   // Number of samples held.
+
+    /**
+    * Create a history holding up to <capacity> samples.
+    *
+    * @param - int capacity: the maximum number of samples, must be positive
+    */
+    public ReadingHistory(int capacity){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        kelvins = new int[capacity];
+        pressures = new int[capacity];
+        timestamps = new long[capacity];
+    }
+
+    /**
+    * Create a history using at most <bytes> bytes of sample storage.
+    *
+    * @param - long bytes: the memory budget for this station
+    * @return - ReadingHistory: the new history
+    */
+    public static ReadingHistory withBudget(long bytes){
+        long capacity = bytes / BYTES_PER_SAMPLE;
+        if(capacity <= 0 || capacity > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("unusable memory budget: " + bytes);
+        }
+        return new ReadingHistory((int) capacity);
+    }
+
+    /**
+    * Record the Reading passed by a WeatherStation.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        if(arg instanceof Reading){
+            Reading reading = (Reading) arg;
+            record(reading.getTimestamp(), reading.getRawKelvin(), reading.getPressureInches());
+        }
+    }
+
+    /**
+    * Add a sample, overwriting the oldest one when full.
+    *
+    * @param - long timestamp: time in ms, int kelvin: raw Kelvin reading,
+    *          double pressure: pressure in inches
+    */
+    public synchronized void record(long timestamp, int kelvin, double pressure){
+        int capacity = kelvins.length;
+        int slot = head + size;
+        if(slot >= capacity){
+            slot -= capacity;
+        }
+        kelvins[slot] = kelvin;
+        pressures[slot] = (int) Math.round(pressure * SCALE);
+        timestamps[slot] = timestamp;
+        if(size < capacity){
+            size++;
+        }
+        else if(++head == capacity){
+            head = 0;
+        }
+    }
+
+    /**
+    * Return the number of samples held.
+    */
+    public synchronized int size(){
+        return size;
+    }
+
+    /**
+    * Return the maximum number of samples held.
+    */
+    public int capacity(){
+        return kelvins.length;
+    }
+
+    /**
+    * Return the bytes of sample storage used by this history.
+    */
+    public long memoryBytes(){
+        return (long) kelvins.length * BYTES_PER_SAMPLE;
+    }
+
+    /**
+    * Return the timestamp of the <i>th sample, 0 being the oldest.
+    *
+    * @param - int i: sample index
+    */
+    public synchronized long getTimestamp(int i){
+        return timestamps[slot(i)];
+    }
+
+    /**
+    * Return the raw Kelvin reading of the <i>th sample, 0 being the oldest.
+    *
+    * @param - int i: sample index
+    */
+    public synchronized int getRawKelvin(int i){
+        return kelvins[slot(i)];
+    }
+
+    /**
+    * Return the pressure in inches of the <i>th sample, 0 being the oldest.
+    *
+    * @param - int i: sample index
+    */
+    public synchronized double getPressureInches(int i){
+        return pressures[slot(i)] / SCALE;
+    }
+
+    /**
+    * Return the index of the first sample taken at or after <time>,
+    * or size() if there is none.
+    *
+    * @param - long time: time in ms
+    */
+    public synchronized int indexOf(long time){
+        int low = 0;
+        int high = size;
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(timestamps[slot(mid)] < time){
+                low = mid + 1;
+            }
+            else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+    * Return the number of samples taken in [from, to).
+    *
+    * @param - long from: start time in ms, inclusive, long to: end time in ms, exclusive
+    */
+    public synchronized int count(long from, long to){
+        return Math.max(0, indexOf(to) - indexOf(from));
+    }
+
+    /**
+    * Copy the samples taken in [from, to) into the given arrays starting
+    * at <offset>, copying no more than fits. Any of the arrays may be null
+    * if that column is not wanted.
+    *
+    * @param - long from: start time in ms, inclusive, long to: end time in ms, exclusive,
+    *          long[] times, int[] kelvin, double[] pressure: destinations,
+    *          int offset: first index to write in the destinations
+    * @return - int: the number of samples copied
+    */
+    public synchronized int range(long from, long to, long[] times, int[] kelvin,
+            double[] pressure, int offset){
+        int first = indexOf(from);
+        int count = indexOf(to) - first;
+        int room = Integer.MAX_VALUE;
+        if(times != null){
+            room = Math.min(room, times.length - offset);
+        }
+        if(kelvin != null){
+            room = Math.min(room, kelvin.length - offset);
+        }
+        if(pressure != null){
+            room = Math.min(room, pressure.length - offset);
+        }
+        count = Math.max(0, Math.min(count, room));
+
+        for(int i = 0; i < count; i++){
+            int slot = slot(first + i);
+            if(times != null){
+                times[offset + i] = timestamps[slot];
+            }
+            if(kelvin != null){
+                kelvin[offset + i] = kelvins[slot];
+            }
+            if(pressure != null){
+                pressure[offset + i] = pressures[slot] / SCALE;
+            }
+        }
+        return count;
+    }
+
+    /**
+    * Map a logical index (0 = oldest) to an array slot.
+    *
+    * @param - int i: sample index
+    */
+    private int slot(int i){
+        if(i < 0 || i >= size){
+            throw new IndexOutOfBoundsException("sample " + i + " of " + size);
+        }
+        int slot = head + i;
+        return slot >= kelvins.length ? slot - kelvins.length : slot;
+    }
+
+    /**
+    * Fill a one million sample history from a simulated station and
+    * report the heap it uses per sample and a range query.
+    *
+    * @param - String[] args: [samples]
+    */
+    public static void main(String[] args) throws InterruptedException{
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        KelvinTempSensor sensor = new KelvinTempSensor();
+        Barometer barometer = new Barometer();
+
+        long before = MetricsRegistry.usedHeap();
+        ReadingHistory history = new ReadingHistory(samples);
+        long start = System.currentTimeMillis();
+        for(int i = 0; i < samples; i++){
+            history.record(start + i * 1000L, sensor.reading(), barometer.pressure());
+        }
+        long after = MetricsRegistry.usedHeap();
+
+        long from = start + samples / 4 * 1000L;
+        long to = from + 3600 * 1000L;
+        int[] kelvin = new int[3600];
+        int copied = history.range(from, to, null, kelvin, null, 0);
+
+        System.out.printf("Samples:           %d%n", history.size());
+        System.out.printf("Measured heap:     %d bytes (%.2f bytes/sample)%n",
+                after - before, (double) (after - before) / samples);
+        System.out.printf("Budgeted storage:  %d bytes (%d bytes/sample)%n",
+                history.memoryBytes(), BYTES_PER_SAMPLE);
+        System.out.printf("One hour range:    %d samples%n", copied);
+    }
+}
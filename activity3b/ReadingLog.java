@@ -0,0 +1,299 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The ReadingLog class is an append-only, on-disk log of station readings.
+* It is an Observer of any number of WeatherStations and appends every
+* Reading it is given.
+*
+* Records are 32 bytes of fixed-width binary:
+*
+*    0  long   timestamp (ms)
+*    8  double pressure (inches)
+*   16  int    station id
+*   20  int    raw Kelvin reading
+*   24  int    checksum of the above (never 0)
+*   28  int    unused
+*
+* The log is a directory of segment files, each memory-mapped through a
+* FileChannel and holding a fixed number of records. When a segment fills
+* up a new one is started. A record is only valid if its checksum matches,
+* so after a crash the log is reopened by scanning the last segment up to
+* the first torn or empty record. Replay reads the records straight out of
+* the mapped segments without copying them into objects.
+*
+* The main method is a write and replay throughput benchmark.
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+public class ReadingLog implements Observer, AutoCloseable{
+    public static final int RECORD_SIZE = 32;
+
+    private static final String PREFIX = "readings-";
+    private static final String SUFFIX = ".seg";
+
+    /**
+    * Receives each record during replay.
+    */
+    public interface Visitor{
+        void visit(int stationId, long timestamp, int kelvin, double pressure);
+    }
+
+    private final Path directory;
+    private final int recordsPerSegment;
+
+    private FileChannel channel;        // Segment being appended to.
+    private MappedByteBuffer segment;   // Its mapping.
+    private long segmentNumber;         // Its number.
+    private int count;                  // Records written to it.
+
+    /**
+    * Open (or create) a log in <directory> with 1M records (32 MB) per segment.
+    *
+    * @param - Path directory: where the segment files live
+    */
+    public ReadingLog(Path directory) throws IOException{
+        this(directory, 1 << 20);
+    }
+
+    /**
+    * Open (or create) a log in <directory>. If the directory already holds
+    * segments, appending continues after the last valid record.
+    *
+    * @param - Path directory: where the segment files live,
+    *          int recordsPerSegment: the number of records per segment file
+    */
+    public ReadingLog(Path directory, int recordsPerSegment) throws IOException{
+        if(recordsPerSegment <= 0 || recordsPerSegment > Integer.MAX_VALUE / RECORD_SIZE){
+            throw new IllegalArgumentException("bad segment size: " + recordsPerSegment);
+        }
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        Files.createDirectories(directory);
+
+        long[] segments = segments(directory);
+        if(segments.length == 0){
+            open(0);
+        }
+        else{
+            open(segments[segments.length - 1]);
+            count = validRecords(segment, recordsPerSegment);
+        }
+    }
+
+    /**
+    * Append the Reading passed by a WeatherStation.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        if(arg instanceof Reading){
+            Reading reading = (Reading) arg;
+            try{
+                append(reading.getStationId(), reading.getTimestamp(),
+                        reading.getRawKelvin(), reading.getPressureInches());
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+    * Append one record, starting a new segment if the current one is full.
+    *
+    * @param - int stationId: the station, long timestamp: time in ms,
+    *          int kelvin: raw Kelvin reading, double pressure: pressure in inches
+    */
+    public synchronized void append(int stationId, long timestamp, int kelvin, double pressure)
+            throws IOException{
+        if(segment == null){
+            throw new IllegalStateException("log is closed");
+        }
+        if(count == recordsPerSegment){
+            segment.force();
+            channel.close();
+            open(segmentNumber + 1);
+        }
+        int at = count * RECORD_SIZE;
+        segment.putLong(at, timestamp);
+        segment.putDouble(at + 8, pressure);
+        segment.putInt(at + 16, stationId);
+        segment.putInt(at + 20, kelvin);
+        segment.putInt(at + 24, checksum(timestamp, pressure, stationId, kelvin));
+        count++;
+    }
+
+    /**
+    * Flush the records written so far to the storage device.
+    */
+    public synchronized void force(){
+        if(segment != null){
+            segment.force();
+        }
+    }
+
+    /**
+    * Flush and close the log.
+    */
+    public synchronized void close() throws IOException{
+        if(segment != null){
+            segment.force();
+            channel.close();
+            segment = null;
+        }
+    }
+
+    /**
+    * Visit every valid record in <directory>, oldest first.
+    *
+    * @param - Path directory: the log directory, Visitor visitor: the record receiver
+    * @return - long: the number of records visited
+    */
+    public static long replay(Path directory, Visitor visitor) throws IOException{
+        long total = 0;
+        for(long number : segments(directory)){
+            try(FileChannel in = FileChannel.open(segmentPath(directory, number), StandardOpenOption.READ)){
+                MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+                int records = (int) (in.size() / RECORD_SIZE);
+                for(int i = 0, at = 0; i < records; i++, at += RECORD_SIZE){
+                    long timestamp = map.getLong(at);
+                    double pressure = map.getDouble(at + 8);
+                    int stationId = map.getInt(at + 16);
+                    int kelvin = map.getInt(at + 20);
+                    if(map.getInt(at + 24) != checksum(timestamp, pressure, stationId, kelvin)){
+                        break;          // end of the written (or torn) records
+                    }
+                    visitor.visit(stationId, timestamp, kelvin, pressure);
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+    * Map segment <number> for appending, creating it if needed.
+    *
+    * @param - long number: the segment number
+    */
+    private void open(long number) throws IOException{
+        channel = FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        segmentNumber = number;
+        count = 0;
+    }
+
+    /**
+    * Count the valid records at the start of a mapped segment.
+    *
+    * @param - MappedByteBuffer map: the segment, int records: its capacity
+    */
+    private static int validRecords(MappedByteBuffer map, int records){
+        for(int i = 0, at = 0; i < records; i++, at += RECORD_SIZE){
+            int check = checksum(map.getLong(at), map.getDouble(at + 8), map.getInt(at + 16), map.getInt(at + 20));
+            if(map.getInt(at + 24) != check){
+                return i;
+            }
+        }
+        return records;
+    }
+
+    /**
+    * Return the numbers of the segments in <directory>, in order.
+    *
+    * @param - Path directory: the log directory
+    */
+    private static long[] segments(Path directory){
+        String[] names = directory.toFile().list();
+        List<Long> numbers = new ArrayList<>();
+        if(names != null){
+            for(String name : names){
+                if(name.startsWith(PREFIX) && name.endsWith(SUFFIX)){
+                    numbers.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                }
+            }
+        }
+        long[] sorted = numbers.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+    * Return the file of segment <number>.
+    *
+    * @param - Path directory: the log directory, long number: the segment number
+    */
+    private static Path segmentPath(Path directory, long number){
+        return directory.resolve(String.format("%s%012d%s", PREFIX, number, SUFFIX));
+    }
+
+    /**
+    * Hash the fields of a record. Never returns 0, so a zero-filled
+    * (never written) record is never valid.
+    */
+    private static int checksum(long timestamp, double pressure, int stationId, int kelvin){
+        long h = timestamp * 0x9E3779B97F4A7C15L;
+        h ^= Double.doubleToRawLongBits(pressure) * 0xC2B2AE3D27D4EB4FL;
+        h ^= (((long) stationId << 32) | (kelvin & 0xFFFFFFFFL)) * 0x165667B19E3779F9L;
+        int check = (int) (h ^ (h >>> 32));
+        return check == 0 ? 1 : check;
+    }
+
+    /**
+    * Benchmark: append <records> records (default 10M) to a log in a
+    * temporary directory, replay them, and report records per second.
+    *
+    * @param - String[] args: [records]
+    */
+    public static void main(String[] args) throws IOException{
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        Path dir = Files.createTempDirectory("readings");
+        KelvinTempSensor sensor = new KelvinTempSensor();
+        Barometer barometer = new Barometer();
+
+        long start = System.nanoTime();
+        try(ReadingLog log = new ReadingLog(dir)){
+            long now = System.currentTimeMillis();
+            for(int i = 0; i < records; i++){
+                log.append(i % 10000, now + i, sensor.reading(), barometer.pressure());
+            }
+        }
+        long written = System.nanoTime() - start;
+
+        long[] sum = new long[1];
+        start = System.nanoTime();
+        long replayed = replay(dir, (id, time, kelvin, pressure) -> sum[0] += kelvin);
+        long read = System.nanoTime() - start;
+
+        System.out.printf("Append: %,d records in %d ms = %,.0f records/sec%n",
+                records, written / 1000000, records * 1e9 / written);
+        System.out.printf("Replay: %,d records in %d ms = %,.0f records/sec (checksum %d)%n",
+                replayed, read / 1000000, replayed * 1e9 / read, sum[0]);
+
+        for(File file : dir.toFile().listFiles()){
+            file.delete();
+        }
+        dir.toFile().delete();
+    }
+}
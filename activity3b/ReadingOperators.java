@@ -0,0 +1,326 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The ReadingOperators class builds processing stages on a
+* Flow.Publisher<Reading>, such as a ReadingPublisher:
+*    - sample(source, period): at most one reading per station per period,
+*    - batch(source, size): lists of <size> readings, for bulk writes,
+*    - window(source, length): a Window summary per tumbling time window.
+* Stages can be chained, e.g. batch(sample(publisher, 1000), 100).
+*
+* Every stage is itself a Publisher that keeps the Reactive Streams
+* contract in both directions: it requests readings from its source in
+* small amounts only as it gets through them, and when its own
+* subscribers stop requesting, its buffer fills, it stops requesting from
+* the source, and the source's policy for a slow subscriber applies. A
+* stage subscribes to its source when it gets its first subscriber, so no
+* readings are lost in between.
+*
+* Stages deliver to their subscribers on a cached pool of daemon
+* "reading-stage" threads shared by all stages, never on the source's
+* executor. A full stage waits for room inside onNext, on the source's
+* thread; if its own deliveries were queued on that executor too, a
+* bounded one (such as a single thread) would deadlock. The wait still
+* holds one thread of the source's executor until the stage has room, so
+* a source with other subscribers needs threads to spare for them.
+*
+* Sampling and windows go by the readings' timestamps, not the time they
+* arrive, so a stage that is behind still groups them as they were taken.
+*/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class ReadingOperators{
+    private static final int DEMAND = 64;      // Readings requested from the source at a time.
+    private static final AtomicInteger threads = new AtomicInteger();  // Thread numbering.
+
+    /**
+    * Runs the deliveries of every stage; unbounded, so that a stage
+    * waiting for room can never starve the deliveries that make room.
+    */
+    private static final ExecutorService STAGES = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "reading-stage-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ReadingOperators(){
+    }
+
+    /**
+    * Publish at most one reading per station per <period> ms: the first
+    * reading at least <period> ms after the last one passed on.
+    *
+    * @param - Flow.Publisher<Reading> source: the readings, long period: the sample period in ms
+    * @return - Flow.Publisher<Reading>: the sampled readings
+    */
+    public static Flow.Publisher<Reading> sample(Flow.Publisher<Reading> source, long period){
+        if(period <= 0){
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        return new Stage<Reading>(source){
+            private final Map<Integer, Long> last = new HashMap<>();   // Station id -> time passed on.
+
+            void accept(Reading reading){
+                Long previous = last.get(reading.getStationId());
+                if(previous == null || reading.getTimestamp() - previous >= period){
+                    last.put(reading.getStationId(), reading.getTimestamp());
+                    submit(reading);
+                }
+            }
+        };
+    }
+
+    /**
+    * Publish the readings in lists of <size>, and any remainder when the
+    * source completes. The lists are not modifiable.
+    *
+    * @param - Flow.Publisher<Reading> source: the readings, int size: readings per list
+    * @return - Flow.Publisher<List<Reading>>: the batches
+    */
+    public static Flow.Publisher<List<Reading>> batch(Flow.Publisher<Reading> source, int size){
+        if(size <= 0){
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        return new Stage<List<Reading>>(source){
+            private List<Reading> batch = new ArrayList<>(size);
+
+            void accept(Reading reading){
+                batch.add(reading);
+                if(batch.size() == size){
+                    flush();
+                }
+            }
+
+            void flush(){
+                if(!batch.isEmpty()){
+                    submit(Collections.unmodifiableList(batch));
+                    batch = new ArrayList<>(size);
+                }
+            }
+        };
+    }
+
+    /**
+    * Publish a Window for every <length> ms of readings that has any,
+    * aligned to multiples of <length> since the epoch. A window is
+    * published when the first reading of a later window arrives, or when
+    * the source completes. A reading older than the open window, from a
+    * station whose clock is behind, is counted in the open window.
+    *
+    * @param - Flow.Publisher<Reading> source: the readings, long length: the window length in ms
+    * @return - Flow.Publisher<Window>: one summary per window
+    */
+    public static Flow.Publisher<Window> window(Flow.Publisher<Reading> source, long length){
+        if(length <= 0){
+            throw new IllegalArgumentException("length must be positive: " + length);
+        }
+        return new Stage<Window>(source){
+            private Window open;
+
+            void accept(Reading reading){
+                long start = reading.getTimestamp() - Math.floorMod(reading.getTimestamp(), length);
+                if(open != null && start > open.start){
+                    flush();
+                }
+                if(open == null){
+                    open = new Window(start, start + length);
+                }
+                open.add(reading);
+            }
+
+            void flush(){
+                if(open != null){
+                    submit(open);
+                    open = null;
+                }
+            }
+        };
+    }
+
+    /**
+    * Summary of the readings in one time window, across all stations.
+    * Raw Kelvin values are in 1/100ths of a degree, pressures in inches.
+    */
+    public static final class Window{
+        private final long start;
+        private final long end;
+        private int count;
+        private long kelvinSum;
+        private int minKelvin = Integer.MAX_VALUE;
+        private int maxKelvin = Integer.MIN_VALUE;
+        private double pressureSum;
+        private double minPressure = Double.POSITIVE_INFINITY;
+        private double maxPressure = Double.NEGATIVE_INFINITY;
+
+        Window(long start, long end){
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+        * Add one reading; only called before the window is published.
+        */
+        void add(Reading reading){
+            int kelvin = reading.getRawKelvin();
+            double pressure = reading.getPressureInches();
+            count++;
+            kelvinSum += kelvin;
+            minKelvin = Math.min(minKelvin, kelvin);
+            maxKelvin = Math.max(maxKelvin, kelvin);
+            pressureSum += pressure;
+            minPressure = Math.min(minPressure, pressure);
+            maxPressure = Math.max(maxPressure, pressure);
+        }
+
+        /**
+        * Return the start of the window, in ms since the epoch.
+        */
+        public long getStart(){
+            return start;
+        }
+
+        /**
+        * Return the end of the window (exclusive), in ms since the epoch.
+        */
+        public long getEnd(){
+            return end;
+        }
+
+        /**
+        * Return the number of readings in the window.
+        */
+        public int getCount(){
+            return count;
+        }
+
+        /**
+        * Return the average raw Kelvin reading.
+        */
+        public double getAverageKelvin(){
+            return (double) kelvinSum / count;
+        }
+
+        /**
+        * Return the lowest raw Kelvin reading.
+        */
+        public int getMinKelvin(){
+            return minKelvin;
+        }
+
+        /**
+        * Return the highest raw Kelvin reading.
+        */
+        public int getMaxKelvin(){
+            return maxKelvin;
+        }
+
+        /**
+        * Return the average pressure in inches.
+        */
+        public double getAveragePressure(){
+            return pressureSum / count;
+        }
+
+        /**
+        * Return the lowest pressure in inches.
+        */
+        public double getMinPressure(){
+            return minPressure;
+        }
+
+        /**
+        * Return the highest pressure in inches.
+        */
+        public double getMaxPressure(){
+            return maxPressure;
+        }
+
+        public String toString(){
+            return "Window[" + start + ".." + end + ", readings=" + count + ", kelvin=" + getAverageKelvin() + " ("
+                    + minKelvin + ".." + maxKelvin + "), pressure=" + getAveragePressure() + " (" + minPressure
+                    + ".." + maxPressure + ")]";
+        }
+    }
+
+    /**
+    * A stage between a source of readings and its own subscribers.
+    * Reactive Streams calls onNext serially, so accept and flush need no
+    * locking. submit waits while a subscriber's buffer is full, which
+    * holds back the next request to the source: that is the back
+    * pressure.
+    */
+    private abstract static class Stage<R> extends SubmissionPublisher<R> implements Flow.Processor<Reading, R>{
+        private final Flow.Publisher<Reading> source;
+        private final AtomicBoolean connected = new AtomicBoolean();
+        private Flow.Subscription upstream;
+        private int outstanding;            // Readings requested and not yet received.
+
+        Stage(Flow.Publisher<Reading> source){
+            super(STAGES, Flow.defaultBufferSize());
+            this.source = source;
+        }
+
+        /**
+        * Handle one reading, submitting any output.
+        */
+        abstract void accept(Reading reading);
+
+        /**
+        * Submit any partial output; called when the source completes.
+        */
+        void flush(){
+        }
+
+        public void subscribe(Flow.Subscriber<? super R> subscriber){
+            super.subscribe(subscriber);
+            if(connected.compareAndSet(false, true)){
+                source.subscribe(this);
+            }
+        }
+
+        public void onSubscribe(Flow.Subscription subscription){
+            upstream = subscription;
+            outstanding = DEMAND;
+            subscription.request(DEMAND);
+        }
+
+        public void onNext(Reading reading){
+            if(isClosed()){
+                upstream.cancel();
+                return;
+            }
+            accept(reading);
+            if(--outstanding <= DEMAND / 2){
+                upstream.request(DEMAND - outstanding);
+                outstanding = DEMAND;
+            }
+        }
+
+        public void onError(Throwable error){
+            closeExceptionally(error);
+        }
+
+        public void onComplete(){
+            flush();
+            close();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The ReadingPublisher class offers the readings of one or more
+* WeatherStations as a java.util.concurrent.Flow.Publisher<Reading>, so
+* that pipelines (aggregation, persistence, export) can subscribe with
+* the standard Reactive Streams contract and pull readings at their own
+* pace with Subscription.request(n), e.g.
+*
+*    ReadingPublisher publisher = new ReadingPublisher();
+*    publisher.attach(station);
+*    ReadingOperators.batch(publisher, 100).subscribe(archiver);
+*
+* It is a SubmissionPublisher that observes the stations: every reading
+* goes into a bounded buffer per subscriber and is delivered on the
+* executor only as the subscriber signals demand. A subscriber that stops
+* requesting fills its buffer; after that the publisher either drops its
+* readings (the default, counted per publisher and as publisher.dropped
+* in the MetricsRegistry) so the stations and the other subscribers keep
+* going, or, if created with block = true, makes the station wait until
+* the subscriber catches up.
+*
+* ReadingOperators adds sample, batch and window stages. The main method
+* measures sustained throughput with a fast and a slow subscriber.
+*/
+
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class ReadingPublisher extends SubmissionPublisher<Reading> implements Observer{
+    private static final LongAdder DROPPED = MetricsRegistry.getDefault().counter("publisher.dropped");
+
+    private final boolean block;
+    private final List<WeatherStation> stations = new CopyOnWriteArrayList<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+    * Create a publisher that delivers on the common ForkJoinPool (or a
+    * thread per task on a single CPU), buffers up to 256 readings per
+    * subscriber and drops readings for a subscriber whose buffer is full.
+    */
+    public ReadingPublisher(){
+        super();
+        this.block = false;
+    }
+
+    /**
+    * Create a publisher that delivers on <executor> and buffers up to
+    * <capacity> readings per subscriber.
+    *
+    * @param - Executor executor: runs the subscribers, int capacity: buffer per subscriber
+    *          (rounded up to a power of two), boolean block: wait for a full subscriber
+    *          instead of dropping its readings
+    */
+    public ReadingPublisher(Executor executor, int capacity, boolean block){
+        super(executor, capacity);
+        this.block = block;
+    }
+
+    /**
+    * Publish the readings of <station> from its next tick.
+    *
+    * @param - WeatherStation station: the station to publish
+    */
+    public void attach(WeatherStation station){
+        stations.add(station);
+        station.addObserver(this);
+    }
+
+    /**
+    * Stop publishing the readings of <station>.
+    *
+    * @param - WeatherStation station: the station to stop publishing
+    */
+    public void detach(WeatherStation station){
+        station.deleteObserver(this);
+        stations.remove(station);
+    }
+
+    /**
+    * Called by a station with its new Reading.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        if(arg instanceof Reading){
+            publish((Reading) arg);
+        }
+    }
+
+    /**
+    * Publish <reading> to every subscriber, waiting for or dropping on
+    * full subscribers as configured. Does nothing once closed.
+    *
+    * @param - Reading reading: the reading to publish
+    */
+    public void publish(Reading reading){
+        if(isClosed()){
+            return;
+        }
+        published.increment();
+        if(block){
+            submit(reading);
+        }
+        else{
+            offer(reading, (subscriber, r) -> {
+                dropped.increment();
+                DROPPED.increment();
+                return false;               // never retry: the station must not wait
+            });
+        }
+    }
+
+    /**
+    * Return the number of readings published.
+    */
+    public long getPublished(){
+        return published.sum();
+    }
+
+    /**
+    * Return the number of deliveries dropped because a subscriber's
+    * buffer was full, summed over subscribers.
+    */
+    public long getDropped(){
+        return dropped.sum();
+    }
+
+    /**
+    * Detach from every station, then complete the subscribers once they
+    * have received what is already buffered.
+    */
+    public void close(){
+        for(WeatherStation station : stations){
+            detach(station);
+        }
+        super.close();
+    }
+
+    /**
+    * A Subscriber that requests <batch> items at a time, spends <work>
+    * microseconds on each, and counts the readings in them.
+    */
+    private static final class Counter implements Flow.Subscriber<Object>{
+        private final int batch;
+        private final long work;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final LongAdder received = new LongAdder();
+        private Flow.Subscription subscription;
+        private int outstanding;
+
+        Counter(int batch, long work){
+            this.batch = batch;
+            this.work = work;
+        }
+
+        public void onSubscribe(Flow.Subscription subscription){
+            this.subscription = subscription;
+            outstanding = batch;
+            subscription.request(batch);
+        }
+
+        public void onNext(Object item){
+            if(work > 0){
+                long until = System.nanoTime() + work * 1000;
+                while(System.nanoTime() < until){
+                    Thread.onSpinWait();
+                }
+            }
+            received.add(item instanceof List ? ((List<?>) item).size() : 1);
+            if(--outstanding <= batch / 2){
+                subscription.request(batch - outstanding);    // keep demand topped up
+                outstanding = batch;
+            }
+        }
+
+        public void onError(Throwable error){
+            error.printStackTrace();
+            done.countDown();
+        }
+
+        public void onComplete(){
+            done.countDown();
+        }
+    }
+
+    /**
+    * Benchmark: tick <stations> stations at <rate> readings a second in
+    * total for <seconds> seconds into a publisher with a fast subscriber and one
+    * that spends <slow> us per reading, first dropping for the slow
+    * subscriber and then blocking on it, and report the rates. A third
+    * subscriber takes one reading per station every 100 ms in batches.
+    *
+    * @param - String[] args: [stations [rate [slow [seconds]]]]
+    */
+    public static void main(String[] args) throws InterruptedException{
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long rate = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+        long slow = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        WeatherStation[] stations = new WeatherStation[count];
+        for(int i = 0; i < count; i++){
+            stations[i] = new WeatherStation(1000, i);
+        }
+        System.out.printf("%d stations, %d readings/s, slow subscriber %d us per reading, %d s per run%n", count,
+                rate, slow, seconds);
+        System.out.printf("%-6s %12s %12s %12s %12s %14s%n", "mode", "published/s", "fast/s", "slow/s",
+                "dropped/s", "sampled/s");
+        for(boolean block : new boolean[]{ false, true }){
+            ExecutorService executor = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ReadingPublisher publisher = new ReadingPublisher(executor, 1024, block);
+            Counter fast = new Counter(256, 0);
+            Counter lagging = new Counter(256, slow);
+            Counter sampled = new Counter(256, 0);
+            publisher.subscribe(fast);
+            publisher.subscribe(lagging);
+            ReadingOperators.batch(ReadingOperators.sample(publisher, 100), 64).subscribe(sampled);
+            for(WeatherStation station : stations){
+                publisher.attach(station);
+            }
+
+            long start = System.nanoTime();
+            long end = start + seconds * 1000000000L;
+            long round = count * 1000000000L / rate;       // ns per tick of every station
+            long due = start;
+            while(System.nanoTime() < end){
+                for(WeatherStation station : stations){
+                    station.tick();
+                }
+                due += round;
+                long wait = due - System.nanoTime();
+                if(wait > 0){
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            long fastCount = fast.received.sum();
+            long slowCount = lagging.received.sum();
+            publisher.close();
+            fast.done.await(10, TimeUnit.SECONDS);
+            executor.shutdownNow();
+
+            System.out.printf("%-6s %12.0f %12.0f %12.0f %12.0f %14.0f%n", block ? "block" : "drop",
+                    publisher.getPublished() / elapsed, fastCount / elapsed, slowCount / elapsed,
+                    publisher.getDropped() / elapsed, sampled.received.sum() / elapsed);
+        }
+    }
+}
@@ -0,0 +1,667 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The ReadingServer class streams live readings to web clients as
+* Server-Sent Events (text/event-stream), so that any browser can watch
+* the stations with an EventSource:
+*    GET /                       a small page showing the live readings
+*    GET /readings               every reading of every attached station
+*    GET /readings?station=12    only the readings of station 12
+*
+* Each reading is serialized to JSON once, on the station's thread, and
+* the same bytes are shared by every client (each gets a read-only view,
+* not a copy). All sockets are non-blocking and served by one selector
+* thread, so thousands of clients cost a few KB each rather than a
+* thread each. A client that cannot keep up loses its oldest unsent
+* readings instead of holding up the others, and if the selector thread
+* itself falls behind the oldest readings not yet handed out are dropped,
+* so the stations can never fill the heap. A connection whose handling
+* throws is closed and logged; the others carry on.
+*
+* The server only listens on the loopback address, and only allows pages
+* of another origin to read the stream (CORS) if given that origin.
+*
+* The main method connects many local clients and reports how many
+* readings per second reach them.
+*/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReadingServer implements Observer, AutoCloseable{
+    private static final int BACKLOG = 4096;           // Pending connections.
+    private static final int REQUEST_MAX = 2048;       // Longest request head accepted.
+    private static final int PENDING_MAX = 256;        // Unsent readings kept per client.
+    private static final int EVENTS_MAX = 4096;        // Readings queued for the selector thread.
+    private static final int GATHER = 64;              // Buffers per gathering write.
+
+    private static final byte[] NOT_FOUND = ascii("HTTP/1.1 404 Not Found\r\n"
+            + "Content-Length: 0\r\nConnection: close\r\n\r\n");
+    private static final byte[] PAGE = page();
+
+    /**
+    * One reading serialized as an event, with the station it came from.
+    */
+    private static final class Event{
+        final int station;
+        final ByteBuffer bytes;        // Read-only, never moved; clients use duplicates.
+
+        Event(int station, byte[] bytes){
+            this.station = station;
+            this.bytes = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+    }
+
+    /**
+    * One connection. Only touched by the selector thread.
+    */
+    private static final class Client{
+        final SocketChannel channel;
+        final ByteBuffer request = ByteBuffer.allocate(REQUEST_MAX);
+        final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        boolean streaming;             // Has the request been answered with a stream?
+        boolean closing;               // Close once pending is written.
+        int station;                   // Only this station, or 0 for all.
+
+        Client(SocketChannel channel){
+            this.channel = channel;
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final List<Client> clients = new ArrayList<>();     // Streaming clients.
+    private final ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean woken = new AtomicBoolean();    // Is a wakeup already due?
+    private final ByteBuffer[] gather = new ByteBuffer[GATHER];
+    private final byte[] streamHeaders;
+    private volatile boolean closed;
+    private volatile int clientCount;  // clients.size(), for other threads.
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong taken = new AtomicLong();         // Events taken off the queue.
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final String metrics;           // "server.<port>", the prefix of this server's gauges.
+
+    /**
+    * Listen on <port> of the loopback address (0 picks a free port)
+    * and start the selector thread. Only pages served by the server
+    * itself can read the stream.
+    *
+    * @param - int port: the TCP port, or 0
+    */
+    public ReadingServer(int port) throws IOException{
+        this(port, null);
+    }
+
+    /**
+    * Listen on <port> of the loopback address (0 picks a free port)
+    * and start the selector thread, allowing pages from <origin> (e.g.
+    * "http://dashboard.example:8080", or "*" for any) to read the stream.
+    *
+    * @param - int port: the TCP port, or 0, String origin: the origin allowed, or null for none
+    */
+    public ReadingServer(int port, String origin) throws IOException{
+        if(origin != null && (origin.isEmpty() || origin.chars().anyMatch(c -> c < 0x20 || c > 0x7E))){
+            throw new IllegalArgumentException("not a valid origin: " + origin);
+        }
+        streamHeaders = ascii("HTTP/1.1 200 OK\r\n"
+                + "Content-Type: text/event-stream\r\n"
+                + "Cache-Control: no-cache\r\n"
+                + "Connection: keep-alive\r\n"
+                + (origin == null ? "" : "Access-Control-Allow-Origin: " + origin + "\r\n")
+                + "\r\n"
+                + "retry: 1000\n\n");
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        metrics = "server." + getPort();
+        MetricsRegistry.getDefault().gauge(metrics + ".clients", this::getClientCount);
+        MetricsRegistry.getDefault().gauge(metrics + ".queue", () -> published.get() - taken.get());
+        thread = new Thread(this::serve, "reading-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+    * Return the port the server listens on.
+    */
+    public int getPort(){
+        return server.socket().getLocalPort();
+    }
+
+    /**
+    * Start streaming the readings of <station>.
+    *
+    * @param - WeatherStation station: the station to stream
+    */
+    public void attach(WeatherStation station){
+        station.addObserver(this);
+    }
+
+    /**
+    * Called when an attached station gets another reading: serialize
+    * it once and hand it to the selector thread.
+    *
+    * @param - Observable obs: the station, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        Reading reading = arg instanceof Reading ? (Reading) arg : ((WeatherStation) obs).getReading();
+        publish(reading);
+    }
+
+    /**
+    * Send <reading> to every client that wants it. If the selector
+    * thread has more than EVENTS_MAX readings still to hand out, the
+    * oldest is dropped.
+    *
+    * @param - Reading reading: the reading to send
+    */
+    public void publish(Reading reading){
+        if(closed){
+            return;
+        }
+        events.add(new Event(reading.getStationId(), serialize(reading)));
+        if(published.incrementAndGet() - taken.get() > EVENTS_MAX && events.poll() != null){
+            taken.incrementAndGet();
+            dropped.incrementAndGet();
+        }
+        if(!woken.getAndSet(true)){
+            selector.wakeup();
+        }
+    }
+
+    /**
+    * Return the number of clients currently streaming.
+    */
+    public int getClientCount(){
+        return clientCount;
+    }
+
+    /**
+    * Return the number of readings published.
+    */
+    public long getPublished(){
+        return published.get();
+    }
+
+    /**
+    * Return the number of readings written to clients, counting each
+    * client separately.
+    */
+    public long getSent(){
+        return sent.get();
+    }
+
+    /**
+    * Return the number of readings dropped for clients that fell behind,
+    * counting each client separately, and before reaching any client
+    * when the selector thread fell behind.
+    */
+    public long getDropped(){
+        return dropped.get();
+    }
+
+    /**
+    * Serialize <reading> as one Server-Sent Event with a JSON object:
+    *
+    * data: {"station":12,"seq":5,"time":1700000000000,"kelvin":298.63,"celsius":25.48,
+    *        "fahrenheit":77.86,"inches":30.09,"millibars":1018.81,"humidity":51.20}
+    */
+    static byte[] serialize(Reading reading){
+        StringBuilder text = new StringBuilder(200);
+        text.append("data: {\"station\":").append(reading.getStationId())
+            .append(",\"seq\":").append(reading.getSequence())
+            .append(",\"time\":").append(reading.getTimestamp());
+        hundredths(text.append(",\"kelvin\":"), reading.getRawKelvin());
+        hundredths(text.append(",\"celsius\":"), reading.getCelsiusHundredths());
+        hundredths(text.append(",\"fahrenheit\":"), reading.getFahrenheitHundredths());
+        hundredths(text.append(",\"inches\":"), reading.getInchesHundredths());
+        hundredths(text.append(",\"millibars\":"), reading.getMillibarsHundredths());
+        for(int i = 0; i < reading.getSensorCount(); i++){
+            double value = reading.getValue(i);
+            string(text.append(','), reading.getSensor(i).getName()).append(':');
+            if(Double.isFinite(value) && Math.abs(value) < 1e15){
+                hundredths(text, Math.round(value * 100));
+            }
+            else if(Double.isFinite(value)){
+                text.append(value);
+            }
+            else{
+                text.append("null");
+            }
+        }
+        text.append("}\n\n");
+        return ascii(text.toString());
+    }
+
+    /**
+    * Append <value> as a JSON string. Quotes, backslashes, control
+    * characters and anything outside ASCII are escaped, so a sensor name
+    * can neither break the object nor be mangled by ascii().
+    */
+    private static StringBuilder string(StringBuilder text, String value){
+        text.append('"');
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\'){
+                text.append('\\').append(c);
+            }
+            else if(c < 0x20 || c > 0x7E){
+                text.append(String.format("\\u%04x", (int) c));
+            }
+            else{
+                text.append(c);
+            }
+        }
+        return text.append('"');
+    }
+
+    /**
+    * Append <value> 1/100ths with two decimals.
+    */
+    private static StringBuilder hundredths(StringBuilder text, long value){
+        if(value < 0){
+            text.append('-');
+        }
+        long abs = Math.abs(value);
+        long fraction = abs % 100;
+        return text.append(abs / 100).append(fraction < 10 ? ".0" : ".").append(fraction);
+    }
+
+    /**
+    * The selector loop: accept, read requests, fan out events, write.
+    */
+    private void serve(){
+        try{
+            while(!closed){
+                selector.select();
+                woken.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()){
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if(!key.isValid()){
+                        continue;
+                    }
+                    try{
+                        if(key.isAcceptable()){
+                            accept();
+                        }
+                        else{
+                            Client client = (Client) key.attachment();
+                            if(key.isReadable()){
+                                read(key, client);
+                            }
+                            if(key.isValid() && key.isWritable()){
+                                write(key, client);
+                            }
+                        }
+                    }
+                    catch(RuntimeException e){
+                        fail(key, e);
+                    }
+                }
+                fanOut();
+            }
+        }
+        catch(IOException e){
+            if(!closed){
+                throw new UncheckedIOException(e);
+            }
+        }
+        catch(ClosedSelectorException e){
+            // closed
+        }
+    }
+
+    /**
+    * Accept every pending connection.
+    */
+    private void accept() throws IOException{
+        SocketChannel channel;
+        while((channel = server.accept()) != null){
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.register(selector, SelectionKey.OP_READ, new Client(channel));
+        }
+    }
+
+    /**
+    * Read from a client: the request head until it is complete, and
+    * afterwards only to notice that the client has gone.
+    */
+    private void read(SelectionKey key, Client client){
+        try{
+            if(client.streaming || client.closing){
+                ByteBuffer discard = ByteBuffer.allocate(256);
+                if(client.channel.read(discard) < 0){
+                    drop(key, client);
+                }
+                return;
+            }
+            if(client.channel.read(client.request) < 0 || !client.request.hasRemaining()){
+                drop(key, client);
+                return;
+            }
+            String head = new String(client.request.array(), 0, client.request.position(), StandardCharsets.ISO_8859_1);
+            if(head.contains("\r\n\r\n")){
+                respond(key, client, head.substring(0, head.indexOf("\r\n")));
+            }
+        }
+        catch(IOException e){
+            drop(key, client);
+        }
+    }
+
+    /**
+    * Answer the request line <line>.
+    */
+    private void respond(SelectionKey key, Client client, String line){
+        String[] parts = line.split(" ");
+        String path = parts.length > 1 && parts[0].equals("GET") ? parts[1] : "";
+        if(path.equals("/readings") || path.startsWith("/readings?station=")){
+            try{
+                client.station = path.length() > 9 ? Integer.parseInt(path.substring(18)) : 0;
+            }
+            catch(NumberFormatException e){
+                client.station = -1;
+            }
+            client.streaming = true;
+            clients.add(client);
+            clientCount = clients.size();
+            client.pending.add(ByteBuffer.wrap(streamHeaders));
+        }
+        else{
+            client.closing = true;
+            client.pending.add(ByteBuffer.wrap(path.equals("/") ? PAGE : NOT_FOUND));
+        }
+        write(key, client);
+    }
+
+    /**
+    * Hand every queued event to the clients that want it, dropping the
+    * oldest unsent event of any client that is too far behind, and try
+    * to write to each client once.
+    */
+    private void fanOut(){
+        boolean any = false;
+        Event event;
+        while((event = events.poll()) != null){
+            any = true;
+            taken.incrementAndGet();
+            for(int i = 0; i < clients.size(); i++){
+                Client client = clients.get(i);
+                if(client.station == 0 || client.station == event.station){
+                    if(client.pending.size() >= PENDING_MAX){
+                        dropOldest(client);
+                    }
+                    client.pending.add(event.bytes.duplicate());
+                }
+            }
+        }
+        if(any){
+            for(int i = clients.size() - 1; i >= 0; i--){
+                Client client = clients.get(i);
+                SelectionKey key = client.channel.keyFor(selector);
+                try{
+                    if(key != null && (key.interestOps() & SelectionKey.OP_WRITE) == 0){
+                        write(key, client);
+                    }
+                }
+                catch(RuntimeException e){
+                    fail(key, e);
+                }
+            }
+        }
+    }
+
+    /**
+    * Drop the oldest reading <client> has not started to receive. The
+    * first buffer is kept if it is partly written, or if it is the
+    * response headers (the only buffer that is not read-only).
+    */
+    private void dropOldest(Client client){
+        ByteBuffer first = client.pending.pollFirst();
+        if(first.position() > 0 || !first.isReadOnly()){
+            client.pending.pollFirst();
+            client.pending.addFirst(first);
+        }
+        dropped.incrementAndGet();
+    }
+
+    /**
+    * Write as much of the client's pending buffers as the socket takes,
+    * with one gathering write per batch, and wait for OP_WRITE if it
+    * could not take everything.
+    */
+    private void write(SelectionKey key, Client client){
+        try{
+            while(!client.pending.isEmpty()){
+                int n = 0;
+                for(ByteBuffer buffer : client.pending){
+                    gather[n++] = buffer;
+                    if(n == GATHER){
+                        break;
+                    }
+                }
+                client.channel.write(gather, 0, n);
+                int done = 0;
+                while(!client.pending.isEmpty() && !client.pending.peekFirst().hasRemaining()){
+                    client.pending.pollFirst();
+                    done++;
+                }
+                if(client.streaming){
+                    sent.addAndGet(done);
+                }
+                if(done < n){
+                    break;          // socket full
+                }
+            }
+            Arrays.fill(gather, null);
+            if(client.pending.isEmpty()){
+                if(client.closing){
+                    drop(key, client);
+                    return;
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            }
+            else{
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+        catch(IOException e){
+            drop(key, client);
+        }
+    }
+
+    /**
+    * Log an unexpected exception from the handling of <key> and close
+    * that connection only, so one bad client cannot stop the server.
+    */
+    private void fail(SelectionKey key, RuntimeException e){
+        System.err.println("Reading server: closing connection after " + e);
+        if(key != null && key.attachment() instanceof Client){
+            drop(key, (Client) key.attachment());
+        }
+    }
+
+    /**
+    * Close a client and forget it.
+    */
+    private void drop(SelectionKey key, Client client){
+        key.cancel();
+        try{
+            client.channel.close();
+        }
+        catch(IOException e){
+            // already gone
+        }
+        if(client.streaming){
+            clients.remove(client);
+            clientCount = clients.size();
+        }
+    }
+
+    /**
+    * Stop the server and close every connection.
+    */
+    public void close() throws IOException{
+        closed = true;
+        MetricsRegistry.getDefault().removeGauge(metrics + ".clients");
+        MetricsRegistry.getDefault().removeGauge(metrics + ".queue");
+        selector.wakeup();
+        try{
+            thread.join(1000);
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        for(SelectionKey key : selector.keys()){
+            key.channel().close();
+        }
+        selector.close();
+        server.close();
+    }
+
+    private static byte[] ascii(String text){
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+    * The page served at /, which shows the live readings of every station.
+    */
+    private static byte[] page(){
+        String html = "<!DOCTYPE html><html><head><title>Weather Stations</title></head><body>"
+                + "<h1>Weather Stations</h1><table id=t border=1><tr><th>Station<th>Celsius<th>Fahrenheit"
+                + "<th>Kelvin<th>Inches<th>Millibars<th>Tick</table><script>"
+                + "var rows={};new EventSource('/readings').onmessage=function(e){var r=JSON.parse(e.data);"
+                + "var row=rows[r.station]||(rows[r.station]=document.getElementById('t').insertRow());"
+                + "row.innerHTML='<td>'+[r.station,r.celsius,r.fahrenheit,r.kelvin,r.inches,r.millibars,r.seq]"
+                + ".join('<td>');};</script></body></html>";
+        byte[] body = ascii(html);
+        byte[] head = ascii("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: " + body.length
+                + "\r\nConnection: close\r\n\r\n");
+        byte[] response = new byte[head.length + body.length];
+        System.arraycopy(head, 0, response, 0, head.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+        return response;
+    }
+
+    /**
+    * Benchmark: stream <stations> stations ticking every <period> ms to
+    * <clients> local clients for <seconds> seconds and report how many
+    * readings per second reach them.
+    *
+    * @param - String[] args: [clients [stations [period [seconds]]]]
+    */
+    public static void main(String[] args) throws Exception{
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int stations = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long period = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        ReadingServer server = new ReadingServer(0);
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+        System.out.println("Listening on " + address);
+
+        // The clients: one selector thread counting the events ('{') received.
+        Selector clientSelector = Selector.open();
+        ByteBuffer request = ByteBuffer.wrap(ascii("GET /readings HTTP/1.1\r\nHost: localhost\r\n"
+                + "Accept: text/event-stream\r\n\r\n"));
+        for(int i = 0; i < count; i++){
+            SocketChannel channel = SocketChannel.open(address);
+            channel.write(request.duplicate());
+            channel.configureBlocking(false);
+            channel.register(clientSelector, SelectionKey.OP_READ);
+        }
+        AtomicLong received = new AtomicLong();
+        AtomicBoolean reading = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            try{
+                while(reading.get()){
+                    clientSelector.select();
+                    for(SelectionKey key : clientSelector.selectedKeys()){
+                        buffer.clear();
+                        if(((SocketChannel) key.channel()).read(buffer) < 0){
+                            key.cancel();
+                            continue;
+                        }
+                        long events = 0;
+                        for(int i = 0; i < buffer.position(); i++){
+                            if(buffer.get(i) == '{'){
+                                events++;
+                            }
+                        }
+                        received.addAndGet(events);
+                    }
+                    clientSelector.selectedKeys().clear();
+                }
+            }
+            catch(IOException | ClosedSelectorException e){
+                // closed
+            }
+        }, "clients");
+        reader.setDaemon(true);
+        reader.start();
+        while(server.getClientCount() < count){
+            Thread.sleep(10);
+        }
+        System.out.printf("%,d clients connected, %d threads in the JVM%n", count, Thread.activeCount());
+
+        StationEngine engine = new StationEngine();
+        for(int i = 0; i < stations; i++){
+            WeatherStation station = new WeatherStation(period);
+            server.attach(station);
+            engine.start(station);
+        }
+
+        long before = received.get();
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long delivered = received.get() - before;
+        engine.shutdown();
+
+        System.out.printf("Published:  %,d readings (%,.0f/sec)%n", server.getPublished(), server.getPublished() / elapsed);
+        System.out.printf("Delivered:  %,.0f readings/sec to clients%n", delivered / elapsed);
+        System.out.printf("Dropped:    %,d for slow clients%n", server.getDropped());
+        server.close();
+        reading.set(false);
+        clientSelector.wakeup();
+        reader.join();
+        clientSelector.close();
+    }
+}
@@ -0,0 +1,95 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The RollingStats class is an Observer of a WeatherStation that keeps
+* rolling 1 minute, 1 hour and 24 hour statistics of the temperature
+* (Celsius) and pressure (millibars). Each tick updates all six windows
+* incrementally; see RollingWindow.
+*
+* The UIs query a window with, for example,
+*    stats.getTemperature(RollingStats.HOUR).getMax()
+* which neither locks the station nor allocates.
+*/
+
+import java.util.Observable;
+import java.util.Observer;
+
+public class RollingStats implements Observer{
+    public static final int MINUTE = 0;     // Index of the 1 minute windows.
+    public static final int HOUR = 1;       // Index of the 1 hour windows.
+    public static final int DAY = 2;        // Index of the 24 hour windows.
+
+    private static final long[] LENGTHS = { 60 * 1000L, 60 * 60 * 1000L, 24 * 60 * 60 * 1000L };
+    private static final int ENTRIES = 3600;    // Most buckets per window: 16 ms, 1 s and 24 s wide.
+
+    private final WeatherStation station;
+    private final RollingWindow[] temperature = new RollingWindow[LENGTHS.length];
+    private final RollingWindow[] pressure = new RollingWindow[LENGTHS.length];
+
+    /**
+    * Remember the station we're attached to, size the windows for its
+    * current period and add ourselves as an observer. Each window keeps
+    * aggregates of at most ENTRIES buckets, so if the period is shortened
+    * later (setPeriod, adaptive sampling) the windows grow to keep
+    * covering their full length, but only up to about ENTRIES entries.
+    *
+    * @param - WeatherStation station: the observed
+    *          WeatherStation object
+    */
+    public RollingStats(WeatherStation station){
+        this.station = station;
+        for(int i = 0; i < LENGTHS.length; i++){
+            long bucket = LENGTHS[i] / ENTRIES;
+            int capacity = (int) (LENGTHS[i] / Math.max(bucket, station.getPeriod()) + 1);
+            temperature[i] = new RollingWindow(LENGTHS[i], capacity, bucket);
+            pressure[i] = new RollingWindow(LENGTHS[i], capacity, bucket);
+        }
+        this.station.addObserver(this);
+    }
+
+    /**
+    * Called when WeatherStation gets another reading.
+    * Adds it to every window.
+    *
+    * @param - Observable obs: the observable, Object arg: the Reading
+    */
+    public void update(Observable obs, Object arg){
+        // Check for spurious updates from unrelated objects.
+        if(station != obs){
+            return;
+        }
+        Reading reading = arg instanceof Reading ? (Reading) arg : station.getReading();
+        long time = reading.getTimestamp();
+        double celsius = reading.getCelsius();
+        double millibars = reading.getPressureMillibars();
+        for(int i = 0; i < LENGTHS.length; i++){
+            temperature[i].add(time, celsius);
+            pressure[i].add(time, millibars);
+        }
+    }
+
+    /**
+    * Return the temperature (Celsius) statistics for a window.
+    *
+    * @param - int window: MINUTE, HOUR or DAY
+    */
+    public RollingWindow getTemperature(int window){
+        return temperature[window];
+    }
+
+    /**
+    * Return the pressure (millibars) statistics for a window.
+    *
+    * @param - int window: MINUTE, HOUR or DAY
+    */
+    public RollingWindow getPressure(int window){
+        return pressure[window];
+    }
+}
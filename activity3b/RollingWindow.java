@@ -0,0 +1,355 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The RollingWindow class keeps the count, mean, standard deviation,
+* minimum and maximum of the samples seen in the last <window> ms.
+*
+* Every statistic is updated in O(1) amortized time per sample:
+*    - mean and variance with Welford's algorithm, which is run
+*      backwards to remove samples as they leave the window, and
+*    - min and max with monotonic deques of entry numbers, whose
+*      front is always the extreme value still in the window.
+*
+* A window either keeps every sample as an entry of its own, or, if
+* created with a bucket width, one entry per bucket of that many ms
+* holding the count, mean, variance, minimum and maximum of the samples
+* in it. The statistics cover every sample either way; a bucketed window
+* only differs at its old end, where a bucket is kept until its newest
+* sample leaves the window, so it may count up to one bucket of older
+* samples. Bucketing bounds the memory of a long window at a short
+* period: a day of 24 s buckets holds 3,602 entries whether the station
+* ticks every second or every millisecond.
+*
+* The entries are held in primitive ring buffers sized when the window
+* is created. If more entries arrive within one window than fit, for
+* example because the station's period was shortened, the buffers double
+* in size, up to one entry per bucket, so the window always covers its
+* full length. Queries never allocate.
+*/
+
+public class RollingWindow{
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;     // Largest array the VM allows.
+
+    private final long window;          // Window length in ms.
+    private final long bucket;          // Bucket width in ms, or 0 for an entry per sample.
+    private final int maxCapacity;      // Most entries the buffers grow to.
+    private int capacity;               // Entries the buffers hold.
+
+    // Per entry, by entry number. Without buckets an entry is one
+    // sample: maxs is the same array as mins and the rest are null.
+    private long[] times;               // Time of the newest sample.
+    private double[] mins;              // Smallest sample (the sample, without buckets).
+    private double[] maxs;              // Largest sample.
+    private int[] counts;               // Number of samples.
+    private double[] means;             // Mean of the samples.
+    private double[] m2s;               // Welford sum of squared differences of the samples.
+    private long first;                 // Number of the oldest entry held.
+    private long next;                  // Number of the next entry to add.
+
+    private long[] minQueue;            // Entry numbers with increasing minimums.
+    private int minHead, minSize;
+    private long[] maxQueue;            // Entry numbers with decreasing maximums.
+    private int maxHead, maxSize;
+
+    private long count;                 // Samples in the window.
+    private double mean;                // Welford running mean.
+    private double m2;                  // Welford sum of squared differences.
+
+    /**
+    * Create a window keeping every sample.
+    *
+    * @param - long window: the window length in ms,
+    *          int capacity: the most samples expected within one window;
+    *          the buffers grow if more arrive
+    */
+    public RollingWindow(long window, int capacity){
+        this(window, capacity, 0);
+    }
+
+    /**
+    * Create a window keeping one entry per <bucket> ms, or per sample if
+    * <bucket> is 0.
+    *
+    * @param - long window: the window length in ms,
+    *          int capacity: the most entries expected within one window;
+    *          the buffers grow if more arrive,
+    *          long bucket: the bucket width in ms, or 0
+    */
+    public RollingWindow(long window, int capacity, long bucket){
+        if(window <= 0 || capacity <= 0 || bucket < 0){
+            throw new IllegalArgumentException("window and capacity must be positive, bucket not negative");
+        }
+        this.window = window;
+        this.bucket = bucket;
+        maxCapacity = bucket == 0 ? MAX_CAPACITY : (int) Math.min(MAX_CAPACITY, window / bucket + 2);
+        this.capacity = Math.min(capacity, maxCapacity);
+        times = new long[this.capacity];
+        mins = new double[this.capacity];
+        if(bucket == 0){
+            maxs = mins;
+        }
+        else{
+            maxs = new double[this.capacity];
+            counts = new int[this.capacity];
+            means = new double[this.capacity];
+            m2s = new double[this.capacity];
+        }
+        minQueue = new long[this.capacity];
+        maxQueue = new long[this.capacity];
+    }
+
+    /**
+    * Add a sample taken at <time>, first dropping entries that are no
+    * longer within the window.
+    *
+    * @param - long time: sample time in ms, double value: the sample
+    */
+    public synchronized void add(long time, double value){
+        expire(time);
+
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if(bucket > 0 && next > first
+                && Math.floorDiv(time, bucket) == Math.floorDiv(times[slot(next - 1)], bucket)){
+            long entry = next - 1;
+            int slot = slot(entry);
+            times[slot] = Math.max(times[slot], time);
+            counts[slot]++;
+            double d = value - means[slot];
+            means[slot] += d / counts[slot];
+            m2s[slot] += d * (value - means[slot]);
+            if(value < mins[slot]){
+                mins[slot] = value;
+                pushMin(entry, value);
+            }
+            if(value > maxs[slot]){
+                maxs[slot] = value;
+                pushMax(entry, value);
+            }
+            return;
+        }
+
+        if(next - first == capacity){
+            if(capacity < maxCapacity){
+                grow();
+            }
+            else{
+                evict();
+            }
+        }
+        int slot = slot(next);
+        times[slot] = time;
+        mins[slot] = value;
+        if(bucket > 0){
+            maxs[slot] = value;
+            counts[slot] = 1;
+            means[slot] = value;
+            m2s[slot] = 0.0;
+        }
+        pushMin(next, value);
+        pushMax(next, value);
+        next++;
+    }
+
+    /**
+    * Drop every entry whose newest sample was taken at or before
+    * <now> - window.
+    *
+    * @param - long now: the current time in ms
+    */
+    public synchronized void expire(long now){
+        while(next > first && times[slot(first)] <= now - window){
+            evict();
+        }
+    }
+
+    /**
+    * Return the window length in ms.
+    */
+    public long getWindow(){
+        return window;
+    }
+
+    /**
+    * Return the bucket width in ms, or 0 if every sample is kept.
+    */
+    public long getBucket(){
+        return bucket;
+    }
+
+    /**
+    * Return the number of samples in the window.
+    */
+    public synchronized int getCount(){
+        return (int) count;
+    }
+
+    /**
+    * Return the mean of the samples in the window, or NaN if empty.
+    */
+    public synchronized double getMean(){
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+    * Return the sample standard deviation of the window, or 0 if it
+    * holds fewer than two samples.
+    */
+    public synchronized double getStdDev(){
+        return count < 2 ? 0.0 : Math.sqrt(Math.max(0.0, m2 / (count - 1)));
+    }
+
+    /**
+    * Return the smallest sample in the window, or NaN if empty.
+    */
+    public synchronized double getMin(){
+        return minSize == 0 ? Double.NaN : mins[slot(minQueue[minHead])];
+    }
+
+    /**
+    * Return the largest sample in the window, or NaN if empty.
+    */
+    public synchronized double getMax(){
+        return maxSize == 0 ? Double.NaN : maxs[slot(maxQueue[maxHead])];
+    }
+
+    /**
+    * Make <entry>, whose minimum is now <value>, the back of the min
+    * deque, dropping the entries it makes redundant (itself included,
+    * if it was already there with a larger minimum).
+    */
+    private void pushMin(long entry, double value){
+        while(minSize > 0 && mins[slot(minQueue[last(minHead, minSize)])] >= value){
+            minSize--;
+        }
+        minQueue[last(minHead, minSize + 1)] = entry;
+        minSize++;
+    }
+
+    /**
+    * Make <entry>, whose maximum is now <value>, the back of the max deque.
+    */
+    private void pushMax(long entry, double value){
+        while(maxSize > 0 && maxs[slot(maxQueue[last(maxHead, maxSize)])] <= value){
+            maxSize--;
+        }
+        maxQueue[last(maxHead, maxSize + 1)] = entry;
+        maxSize++;
+    }
+
+    /**
+    * Remove the oldest entry from the statistics and the deques. Its
+    * samples leave the running mean and variance together, by running
+    * the parallel form of Welford's algorithm backwards.
+    */
+    private void evict(){
+        int slot = slot(first);
+        long n = bucket == 0 ? 1 : counts[slot];
+        double entryMean = bucket == 0 ? mins[slot] : means[slot];
+        double entryM2 = bucket == 0 ? 0.0 : m2s[slot];
+        long rest = count - n;
+        if(rest == 0){
+            mean = 0.0;
+            m2 = 0.0;
+        }
+        else{
+            double restMean = (count * mean - n * entryMean) / rest;
+            double delta = entryMean - restMean;
+            m2 -= entryM2 + delta * delta * n * rest / count;
+            mean = restMean;
+        }
+        count = rest;
+
+        if(minSize > 0 && minQueue[minHead] == first){
+            minHead = (minHead + 1) % capacity;
+            minSize--;
+        }
+        if(maxSize > 0 && maxQueue[maxHead] == first){
+            maxHead = (maxHead + 1) % capacity;
+            maxSize--;
+        }
+        first++;
+    }
+
+    /**
+    * Double the buffers, up to maxCapacity, keeping every entry at the
+    * slot of its number and the deques in order from index 0.
+    */
+    private void grow(){
+        int size = (int) Math.min(maxCapacity, capacity * 2L);
+        times = copy(times, size);
+        double[] newMins = copy(mins, size);
+        maxs = bucket == 0 ? newMins : copy(maxs, size);
+        mins = newMins;
+        if(bucket > 0){
+            int[] newCounts = new int[size];
+            for(long n = first; n < next; n++){
+                newCounts[(int) (n % size)] = counts[slot(n)];
+            }
+            counts = newCounts;
+            means = copy(means, size);
+            m2s = copy(m2s, size);
+        }
+        long[] newMin = new long[size];
+        for(int i = 0; i < minSize; i++){
+            newMin[i] = minQueue[(minHead + i) % capacity];
+        }
+        long[] newMax = new long[size];
+        for(int i = 0; i < maxSize; i++){
+            newMax[i] = maxQueue[(maxHead + i) % capacity];
+        }
+        minQueue = newMin;
+        maxQueue = newMax;
+        minHead = 0;
+        maxHead = 0;
+        capacity = size;
+    }
+
+    /**
+    * Return a buffer of <size> holding the entries of <old> at the
+    * slots of their numbers.
+    */
+    private long[] copy(long[] old, int size){
+        long[] copy = new long[size];
+        for(long n = first; n < next; n++){
+            copy[(int) (n % size)] = old[slot(n)];
+        }
+        return copy;
+    }
+
+    /**
+    * Return a buffer of <size> holding the entries of <old> at the
+    * slots of their numbers.
+    */
+    private double[] copy(double[] old, int size){
+        double[] copy = new double[size];
+        for(long n = first; n < next; n++){
+            copy[(int) (n % size)] = old[slot(n)];
+        }
+        return copy;
+    }
+
+    /**
+    * Map an entry number to its ring slot.
+    */
+    private int slot(long entry){
+        return (int) (entry % capacity);
+    }
+
+    /**
+    * Return the index of the last of <size> deque entries starting at <head>.
+    */
+    private int last(int head, int size){
+        return (head + size - 1) % capacity;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The Sensor interface is what a WeatherStation needs from any extra
+* sensor it is given: a name, a unit and a way to read the current value.
+* Humidity, wind, rain or real devices read from a file or serial port
+* can all be added to a station this way.
+*
+* Implementations listed in META-INF/services/Sensor are found with
+* ServiceLoader by WeatherStation.loadSensors(); they need a public
+* constructor with no arguments.
+*
+* Sensors whose read() may block (devices, files, the network) should
+* return true from isBlocking(). The station then reads them on a shared
+* thread pool, in parallel and with a timeout, so that one slow device
+* does not hold up the tick for the others. Other sensors are read
+* directly on the ticking thread.
+*/
+
+import java.io.IOException;
+
+public interface Sensor{
+
+    /**
+    * Return the name of the quantity measured, for example "humidity".
+    * A station's readings can be looked up by this name.
+    */
+    String getName();
+
+    /**
+    * Return the unit of the values returned by read(), for example "%".
+    */
+    String getUnit();
+
+    /**
+    * Return the current value.
+    *
+    * @return - double: the value in getUnit() units
+    */
+    double read() throws IOException;
+
+    /**
+    * Return true if read() may block, so that it should be read in
+    * parallel with a timeout. Defaults to false.
+    */
+    default boolean isBlocking(){
+        return false;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The SensorBank class simulates a large number of KelvinTempSensor and
+* Barometer pairs at once. Instead of one object per sensor, the bank
+* keeps every reading, trend and random state in primitive arrays
+* (structure of arrays) and advances all sensors in one pass per tick.
+*
+* Each sensor follows exactly the rules of reading() and pressure():
+*    - temperature keeps its trend with 80% probability, moves by
+*      200..299 hundredths per tick, and is clamped to 23315..38315
+*      with the trend turned back at either end;
+*    - pressure keeps its trend with 75% probability, moves by less
+*      than 0.2 inches per tick, and is clamped to 27..32 inches
+*      with the trend turned back at either end.
+*
+* Random numbers come from a counter-based SplitMix64 hash per sensor
+* rather than a SplittableRandom object, and the update is written with
+* no data-dependent branches, so the loops are simple enough for the JIT
+* to unroll and use conditional moves (and, where it can, SIMD).
+*
+* The main method compares the bank with the same number of sensor
+* objects.
+*/
+
+import java.util.SplittableRandom;
+
+public class SensorBank{
+    private static final int MINREADING = 23315;       // -40 C
+    private static final int MAXREADING = 38315;       // 110 C
+    private static final int DEFAULT = 29315;          //  20 C
+    private static final int MINCHANGE = 200;          // Smallest change per tick (1/100ths).
+    private static final int CHANGES = 100;            // Number of possible changes.
+    private static final int TEMP_FLIP = (int) (0.2 * (1 << 24));   // 20% chance to turn.
+
+    private static final double MIN = 27.0;            // Minimum pressure.
+    private static final double MAX = 32.0;            // Maximum pressure.
+    private static final double PRESSURE = 29.92;      // Default pressure.
+    private static final double MAXDELTA = 0.2;        // Maximum pressure change.
+    private static final int PRESSURE_FLIP = (int) (0.25 * (1 << 24)); // 25% chance to turn.
+
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final int[] kelvin;         // Raw Kelvin reading per sensor.
+    private final int[] kelvinUp;       // 1 if the temperature is trending up, else 0.
+    private final double[] pressure;    // Pressure in inches per sensor.
+    private final int[] pressureUp;     // 1 if the pressure is trending up, else 0.
+    private final long[] state;         // Random counter per sensor.
+
+    /**
+    * Create a bank of <size> sensor pairs at their default readings.
+    *
+    * @param - int size: the number of sensor pairs, long seed: the simulation seed
+    */
+    public SensorBank(int size, long seed){
+        kelvin = new int[size];
+        kelvinUp = new int[size];
+        pressure = new double[size];
+        pressureUp = new int[size];
+        state = new long[size];
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for(int i = 0; i < size; i++){
+            kelvin[i] = DEFAULT;
+            kelvinUp[i] = 1;
+            pressure[i] = PRESSURE;
+            pressureUp[i] = 1;
+            state[i] = seeds.nextLong();
+        }
+    }
+
+    /**
+    * Return the number of sensor pairs.
+    */
+    public int size(){
+        return kelvin.length;
+    }
+
+    /**
+    * Advance every sensor by one reading.
+    */
+    public void advance(){
+        advanceTemperature();
+        advancePressure();
+    }
+
+    /**
+    * Advance every sensor by <ticks> readings.
+    *
+    * @param - int ticks: the number of readings
+    */
+    public void advance(int ticks){
+        for(int t = 0; t < ticks; t++){
+            advance();
+        }
+    }
+
+    /**
+    * Return the raw Kelvin reading of sensor <i>.
+    */
+    public int getRawKelvin(int i){
+        return kelvin[i];
+    }
+
+    /**
+    * Return the pressure in inches of sensor <i>.
+    */
+    public double getPressureInches(int i){
+        return pressure[i];
+    }
+
+    /**
+    * Copy the raw Kelvin readings of sensors [from, from + len) into <dst>.
+    */
+    public void copyKelvin(int from, int[] dst, int off, int len){
+        System.arraycopy(kelvin, from, dst, off, len);
+    }
+
+    /**
+    * Copy the pressures of sensors [from, from + len) into <dst>.
+    */
+    public void copyPressure(int from, double[] dst, int off, int len){
+        System.arraycopy(pressure, from, dst, off, len);
+    }
+
+    /**
+    * One temperature tick for every sensor.
+    */
+    private void advanceTemperature(){
+        int[] k = kelvin;
+        int[] up = kelvinUp;
+        long[] s = state;
+        for(int i = 0; i < k.length; i++){
+            long z = mix(s[i] += GOLDEN);
+            int u = up[i] ^ (((int) (z >>> 40) - TEMP_FLIP) >>> 31);     // flip if below
+            int change = MINCHANGE + (int) (((z & 0xFFFF) * CHANGES) >>> 16);
+            int r = k[i] + change * (2 * u - 1);
+            int high = (MAXREADING - 1 - r) >>> 31;                         // 1 if r >= MAX
+            int low = (r - MINREADING - 1) >>> 31;                          // 1 if r <= MIN
+            k[i] = Math.max(MINREADING, Math.min(MAXREADING, r));
+            up[i] = (u | low) & (high ^ 1);
+        }
+    }
+
+    /**
+    * One pressure tick for every sensor.
+    */
+    private void advancePressure(){
+        double[] p = pressure;
+        int[] up = pressureUp;
+        long[] s = state;
+        for(int i = 0; i < p.length; i++){
+            long z = mix(s[i] += GOLDEN);
+            int u = up[i] ^ (((int) (z >>> 40) - PRESSURE_FLIP) >>> 31); // flip if below
+            double change = (z & 0xFFFFFFFFFFL) * 0x1.0p-40 * MAXDELTA;
+            double r = p[i] + change * (2 * u - 1);
+            u = r >= MAX ? 0 : r <= MIN ? 1 : u;
+            p[i] = Math.max(MIN, Math.min(MAX, r));
+            up[i] = u;
+        }
+    }
+
+    /**
+    * SplitMix64 finalizer: a well mixed 64 bit value from a counter.
+    */
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+    * Benchmark: advance <sensors> sensor pairs (default 100000) for
+    * <ticks> ticks, as a bank and as separate objects.
+    *
+    * @param - String[] args: [sensors [ticks]]
+    */
+    public static void main(String[] args){
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        SensorBank bank = new SensorBank(size, 383);
+        KelvinTempSensor[] sensors = new KelvinTempSensor[size];
+        Barometer[] barometers = new Barometer[size];
+        SplittableRandom seeds = new SplittableRandom(383);
+        for(int i = 0; i < size; i++){
+            sensors[i] = new KelvinTempSensor(seeds.split());
+            barometers[i] = new Barometer(seeds.split());
+        }
+
+        for(int round = 0; round < 3; round++){     // first rounds warm up the JIT
+            long start = System.nanoTime();
+            bank.advance(ticks);
+            long banked = System.nanoTime() - start;
+
+            long sum = 0;
+            start = System.nanoTime();
+            for(int t = 0; t < ticks; t++){
+                for(int i = 0; i < size; i++){
+                    sum += sensors[i].reading() + (long) barometers[i].pressure();
+                }
+            }
+            long objects = System.nanoTime() - start;
+
+            if(round == 2){
+                double samples = (double) size * ticks;
+                System.out.printf("SensorBank:      %6.2f ns per sensor pair per tick%n", banked / samples);
+                System.out.printf("Sensor objects:  %6.2f ns per sensor pair per tick   (%d)%n",
+                        objects / samples, (sum + bank.getRawKelvin(0)) & 0xF);
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The SensorPoller class reads a WeatherStation's extra Sensors once per
+* tick. Sensors can be added and removed at any time, also while the
+* station is running; the list is copied on change so that a poll never
+* locks against it.
+*
+* Each poll first starts a read of every blocking sensor on a shared pool
+* of daemon threads, then reads the non-blocking sensors directly, then
+* waits for the blocking reads until the timeout. A sensor that misses
+* the timeout keeps its last value for this tick; its read carries on in
+* the background, and no second read is started while it is outstanding,
+* so a hung device costs one thread rather than one per tick. Later polls
+* only check whether that read has finished and never wait for it, so a
+* hung device does not hold up the ticks after the first. A sensor whose
+* read fails reports NaN.
+*/
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SensorPoller{
+    private static final AtomicInteger threads = new AtomicInteger(); // Pool thread numbering.
+    private static final ExecutorService POOL = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "sensor-poller-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Slot[] NO_SLOTS = new Slot[0];
+    private static final Sample EMPTY = new Sample(new Sensor[0], new double[0]);
+
+    /**
+    * The values of one poll, in the same order as the sensors.
+    */
+    public static final class Sample{
+        private final Sensor[] sensors;
+        private final double[] values;
+
+        private Sample(Sensor[] sensors, double[] values){
+            this.sensors = sensors;
+            this.values = values;
+        }
+
+        /**
+        * Return the sensors polled. Not to be modified.
+        */
+        public Sensor[] getSensors(){
+            return sensors;
+        }
+
+        /**
+        * Return the value of each sensor. Not to be modified.
+        */
+        public double[] getValues(){
+            return values;
+        }
+    }
+
+    /**
+    * A sensor with its last value and outstanding read, if any.
+    * Polled under pollLock; pending is also cancelled by remove().
+    */
+    private static final class Slot{
+        final Sensor sensor;
+        double value = Double.NaN;
+        volatile Future<Double> pending;
+
+        Slot(Sensor sensor){
+            this.sensor = sensor;
+        }
+    }
+
+    private volatile Slot[] slots = NO_SLOTS;       // Copied on every change.
+    private final Object pollLock = new Object();   // One poll at a time.
+
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private static final LongAdder TIMEOUTS = MetricsRegistry.getDefault().counter("sensor.timeouts");
+    private static final LongAdder ERRORS = MetricsRegistry.getDefault().counter("sensor.errors");
+
+    /**
+    * Add <sensor> from the next poll on.
+    *
+    * @param - Sensor sensor: the sensor to add
+    */
+    public synchronized void add(Sensor sensor){
+        if(sensor == null){
+            throw new NullPointerException("sensor");
+        }
+        Slot[] next = Arrays.copyOf(slots, slots.length + 1);
+        next[slots.length] = new Slot(sensor);
+        slots = next;
+    }
+
+    /**
+    * Remove <sensor> from the next poll on, cancelling any read
+    * still outstanding.
+    *
+    * @param - Sensor sensor: the sensor to remove
+    * @return - boolean: true if the sensor was being polled
+    */
+    public synchronized boolean remove(Sensor sensor){
+        Slot[] current = slots;
+        for(int i = 0; i < current.length; i++){
+            if(current[i].sensor == sensor){
+                Slot[] next = new Slot[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+                slots = next;
+                Future<Double> pending = current[i].pending;
+                if(pending != null){
+                    pending.cancel(true);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+    * Return the sensors currently polled.
+    */
+    public Sensor[] getSensors(){
+        Slot[] current = slots;
+        Sensor[] list = new Sensor[current.length];
+        for(int i = 0; i < current.length; i++){
+            list[i] = current[i].sensor;
+        }
+        return list;
+    }
+
+    /**
+    * Return the number of sensors currently polled.
+    */
+    public int size(){
+        return slots.length;
+    }
+
+    /**
+    * Return how many times a blocking sensor has missed the poll timeout.
+    */
+    public long getTimeouts(){
+        return timeouts.get();
+    }
+
+    /**
+    * Return how many sensor reads have failed.
+    */
+    public long getErrors(){
+        return errors.get();
+    }
+
+    /**
+    * Read every sensor, waiting at most <timeout> nanoseconds for the
+    * blocking ones.
+    *
+    * @param - long timeout: the longest wait for blocking sensors, in ns
+    * @return - Sample: the sensors and their values
+    */
+    public Sample poll(long timeout){
+        Slot[] current = slots;
+        if(current.length == 0){
+            return EMPTY;
+        }
+        synchronized(pollLock){
+            long deadline = System.nanoTime() + timeout;
+            boolean[] started = new boolean[current.length];
+            for(int i = 0; i < current.length; i++){
+                Slot slot = current[i];
+                if(slot.sensor.isBlocking() && slot.pending == null){
+                    slot.pending = POOL.submit(slot.sensor::read);
+                    started[i] = true;
+                }
+            }
+
+            Sensor[] polled = new Sensor[current.length];
+            double[] values = new double[current.length];
+            for(int i = 0; i < current.length; i++){
+                Slot slot = current[i];
+                Future<Double> pending = slot.pending;
+                if(pending != null){
+                    if(started[i] || pending.isDone()){
+                        await(slot, deadline);
+                    }
+                    else{
+                        timeouts.incrementAndGet();     // still hung from an earlier tick: don't wait again
+                        TIMEOUTS.increment();
+                    }
+                }
+                else{
+                    try{
+                        slot.value = slot.sensor.read();
+                    }
+                    catch(Exception e){
+                        slot.value = Double.NaN;
+                        errors.incrementAndGet();
+                        ERRORS.increment();
+                    }
+                }
+                polled[i] = slot.sensor;
+                values[i] = slot.value;
+            }
+            return new Sample(polled, values);
+        }
+    }
+
+    /**
+    * Wait for a blocking sensor's outstanding read until <deadline>;
+    * only called for a read started by this poll or already finished.
+    */
+    private void await(Slot slot, long deadline){
+        try{
+            slot.value = slot.pending.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            slot.pending = null;
+        }
+        catch(TimeoutException e){
+            timeouts.incrementAndGet();          // keep the last value, and the read
+            TIMEOUTS.increment();
+        }
+        catch(ExecutionException e){
+            slot.value = Double.NaN;
+            slot.pending = null;
+            errors.incrementAndGet();
+            ERRORS.increment();
+        }
+        catch(CancellationException e){
+            slot.pending = null;                 // removed while polling
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();  // keep the last value, and the read
+        }
+    }
+
+    /**
+    * Demonstration: tick a station with the discovered sensors and one
+    * device that takes 2 seconds to answer, and show that only the ticks
+    * that start a read of it wait, and for at most half a period. The
+    * station ticks once before the device is added, so that the first
+    * tick's start-up (metrics, class loading) is not counted.
+    *
+    * @param - String[] args: [period [ticks]]
+    */
+    public static void main(String[] args) throws InterruptedException{
+        long period = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        WeatherStation station = new WeatherStation(period);
+        System.out.println("Discovered " + station.loadSensors() + " sensors");
+        station.tick();
+        station.addSensor(new Sensor(){
+            public String getName(){
+                return "slow";
+            }
+
+            public String getUnit(){
+                return "s";
+            }
+
+            public double read() throws IOException{
+                try{
+                    Thread.sleep(2000);
+                }
+                catch(InterruptedException e){
+                    throw new InterruptedIOException();
+                }
+                return System.currentTimeMillis() / 1000.0;
+            }
+
+            public boolean isBlocking(){
+                return true;
+            }
+        });
+
+        long slowest = 0;
+        int waited = 0;
+        for(int t = 0; t < ticks; t++){
+            long start = System.nanoTime();
+            station.tick();
+            long took = System.nanoTime() - start;
+            slowest = Math.max(slowest, took);
+            if(took > TimeUnit.MILLISECONDS.toNanos(period) / 4){
+                waited++;
+            }
+            Thread.sleep(period);
+        }
+        System.out.println("Last reading:");
+        Reading reading = station.getReading();
+        for(int i = 0; i < reading.getSensorCount(); i++){
+            System.out.printf("    %-10s %10.2f %s%n", reading.getSensor(i).getName(), reading.getValue(i),
+                    reading.getSensor(i).getUnit());
+        }
+        System.out.printf("Slowest tick:  %.1f ms (period %d ms)%n", slowest / 1e6, period);
+        System.out.printf("Ticks waited:  %d of %d%n", waited, ticks);
+        System.out.printf("Timeouts:      %d%n", station.getSensorPoller().getTimeouts());
+        System.out.printf("Errors:        %d%n", station.getSensorPoller().getErrors());
+    }
+}
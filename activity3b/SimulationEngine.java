@@ -0,0 +1,152 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The SimulationEngine class generates readings for many simulated
+* stations as fast as possible, for load testing the rest of the pipeline
+* (buses, histories, logs, displays) without waiting for real time.
+*
+* Every station has its own seed, derived from one engine seed, and its
+* own SplittableRandom streams, so:
+*    - the same engine seed always replays exactly the same readings,
+*    - any one station can be replayed on its own from its seed, and
+*    - stations can be generated on different threads without sharing
+*      (or contending on) a random number generator.
+*
+* Readings are generated in blocks with the bulk KelvinTempSensor and
+* Barometer methods and handed to a Sink as primitive arrays.
+*
+* The main method reports the generation rate and checks that two runs
+* with the same seed produce the same readings.
+*/
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+public class SimulationEngine{
+
+    /**
+    * Receives a block of readings for one station. The arrays are reused
+    * once the call returns; only the first <count> entries are valid.
+    */
+    public interface Sink{
+        void accept(int station, long firstTick, int[] kelvin, double[] pressure, int count);
+    }
+
+    private final long seed;
+    private final KelvinTempSensor[] sensors;
+    private final Barometer[] barometers;
+    private final long[] ticks;             // Readings generated so far, per station.
+
+    /**
+    * Create <stations> simulated stations seeded from <seed>.
+    *
+    * @param - int stations: the number of stations, long seed: the engine seed
+    */
+    public SimulationEngine(int stations, long seed){
+        this.seed = seed;
+        sensors = new KelvinTempSensor[stations];
+        barometers = new Barometer[stations];
+        ticks = new long[stations];
+        for(int i = 0; i < stations; i++){
+            SplittableRandom seeds = new SplittableRandom(stationSeed(seed, i));
+            sensors[i] = new KelvinTempSensor(seeds.split());
+            barometers[i] = new Barometer(seeds.split());
+        }
+    }
+
+    /**
+    * Return the seed of station <station> of an engine seeded with <seed>.
+    *
+    * @param - long seed: the engine seed, int station: the station number
+    */
+    public static long stationSeed(long seed, int station){
+        return new SplittableRandom(seed + station * 0x9E3779B97F4A7C15L).nextLong();
+    }
+
+    /**
+    * Return the engine seed.
+    */
+    public long getSeed(){
+        return seed;
+    }
+
+    /**
+    * Return the number of stations.
+    */
+    public int size(){
+        return sensors.length;
+    }
+
+    /**
+    * Generate the next <count> readings of every station, in blocks of
+    * up to <block> readings per Sink call. With <parallel>, stations are
+    * spread over the common fork/join pool and the Sink must be thread
+    * safe; each station's readings are the same either way.
+    *
+    * @param - int count: readings per station, int block: readings per Sink call,
+    *          boolean parallel: generate stations in parallel, Sink sink: the receiver
+    */
+    public void generate(int count, int block, boolean parallel, Sink sink){
+        IntStream stations = IntStream.range(0, sensors.length);
+        (parallel ? stations.parallel() : stations).forEach(station -> generate(station, count, block, sink));
+    }
+
+    /**
+    * Generate the next <count> readings of one station.
+    *
+    * @param - int station: the station, int count: readings to generate,
+    *          int block: readings per Sink call, Sink sink: the receiver
+    */
+    public void generate(int station, int count, int block, Sink sink){
+        int[] kelvin = new int[block];
+        double[] pressure = new double[block];
+        for(int done = 0; done < count; ){
+            int n = Math.min(block, count - done);
+            sensors[station].readings(kelvin, 0, n);
+            barometers[station].pressures(pressure, 0, n);
+            sink.accept(station, ticks[station], kelvin, pressure, n);
+            ticks[station] += n;
+            done += n;
+        }
+    }
+
+    /**
+    * Benchmark: generate <ticks> readings for each of <stations> stations,
+    * twice with the same seed, and report readings per second.
+    *
+    * @param - String[] args: [stations [ticks [seed]]]
+    */
+    public static void main(String[] args){
+        int stations = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 383;
+
+        long[] hashes = new long[2];
+        for(int run = 0; run < 2; run++){
+            SimulationEngine engine = new SimulationEngine(stations, seed);
+            LongAdder hash = new LongAdder();
+            long start = System.nanoTime();
+            engine.generate(ticks, 1024, true, (station, first, kelvin, pressure, count) -> {
+                long h = station;
+                for(int i = 0; i < count; i++){
+                    h = h * 31 + kelvin[i] + Double.doubleToRawLongBits(pressure[i]);
+                }
+                hash.add(h);
+            });
+            long elapsed = System.nanoTime() - start;
+            hashes[run] = hash.sum();
+            System.out.printf("Run %d: %,d readings in %d ms = %,.0f readings/sec, hash %016x%n",
+                    run + 1, (long) stations * ticks, elapsed / 1000000,
+                    (double) stations * ticks * 1e9 / elapsed, hashes[run]);
+        }
+        System.out.println(hashes[0] == hashes[1] ? "Replay matches" : "REPLAY DIFFERS");
+    }
+}
@@ -0,0 +1,191 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The StationBenchmark class measures the station hot path so that
+* regressions show up as numbers:
+*    - KelvinTempSensor.reading() and Barometer.pressure()
+*    - WeatherStation.tick() with 0, 1, 10 and 100 observers
+*    - the WeatherStation conversion getters, and the double against
+*      the fixed-point (Units) conversions of a Reading
+*    - TextUI.update() formatting (with System.out discarded) and the
+*      ChannelTextUI alternative (writing to a discarding channel)
+*
+* Each benchmark is warmed up, then timed over several iterations and
+* reported as the mean and standard deviation in ns per operation. The
+* result of every operation is summed into a sink that is printed, so
+* the JIT cannot remove the work being measured.
+*
+* Pass benchmark names as arguments to run only those, e.g.
+*    java StationBenchmark tick getters units
+*
+* The sensor, tick, getter and TextUI benchmarks also run under JMH in
+* the benchmarks module (benchmarks/pom.xml, see build.txt); this class
+* needs nothing but javac.
+*/
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Observer;
+
+public class StationBenchmark{
+    private static final int WARMUP = 5;            // Untimed iterations.
+    private static final int ITERATIONS = 10;       // Timed iterations.
+    private static final long ITERATION_NS = 200000000L;   // 200 ms per iteration.
+
+    /**
+    * One benchmarked operation. The returned value goes into the sink.
+    */
+    interface Op{
+        long run();
+    }
+
+    private static final PrintStream OUT = System.out;     // Report here even when System.out is redirected.
+
+    private static long sink;   // Results of every operation.
+
+    /**
+    * Run the benchmarks named in <args>, or all of them.
+    *
+    * @param - String[] args: the benchmarks to run
+    */
+    public static void main(String[] args){
+        List<String> only = Arrays.asList(args);
+
+        if(only.isEmpty() || only.contains("sensor")){
+            KelvinTempSensor sensor = new KelvinTempSensor();
+            Barometer barometer = new Barometer();
+            measure("KelvinTempSensor.reading()", () -> sensor.reading());
+            measure("Barometer.pressure()", () -> (long) barometer.pressure());
+        }
+
+        if(only.isEmpty() || only.contains("tick")){
+            for(int observers : new int[]{ 0, 1, 10, 100 }){
+                WeatherStation station = new WeatherStation();
+                long[] seen = new long[1];
+                for(int i = 0; i < observers; i++){
+                    Observer observer = (obs, arg) -> seen[0]++;
+                    station.addObserver(observer);
+                }
+                measure("WeatherStation.tick(), " + observers + " observers", () -> {
+                    station.tick();
+                    return seen[0];
+                });
+            }
+        }
+
+        if(only.isEmpty() || only.contains("getters")){
+            WeatherStation station = new WeatherStation();
+            station.tick();
+            measure("WeatherStation conversion getters (5)", () -> (long) (station.getKelvin()
+                    + station.getCelsius() + station.getFahrenheit()
+                    + station.getPressureInches() + station.getPressureMillibars()));
+        }
+
+        if(only.isEmpty() || only.contains("units")){
+            Reading[] readings = new Reading[1024];
+            KelvinTempSensor sensor = new KelvinTempSensor();
+            Barometer barometer = new Barometer();
+            for(int i = 0; i < readings.length; i++){
+                readings[i] = new Reading(1, i, i, sensor.reading(), barometer.pressure());
+            }
+            int[] next = new int[1];
+            measure("Reading conversions, double", () -> {
+                Reading r = readings[next[0]++ & 1023];
+                return (long) (r.getKelvin() + r.getCelsius() + r.getFahrenheit()
+                        + r.getPressureInches() + r.getPressureMillibars());
+            });
+            measure("Reading conversions, fixed point", () -> {
+                Reading r = readings[next[0]++ & 1023];
+                return r.getRawKelvin() + r.getCelsiusHundredths() + r.getFahrenheitHundredths()
+                        + r.getInchesHundredths() + r.getMillibarsHundredths();
+            });
+        }
+
+        if(only.isEmpty() || only.contains("text")){
+            WeatherStation station = new WeatherStation();
+            TextUI ui = new TextUI(station);
+            station.deleteObserver(ui);
+            station.tick();
+            Reading reading = station.getReading();
+            PrintStream out = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            try{
+                measure("TextUI.update()", () -> {
+                    ui.update(station, reading);
+                    return 1;
+                });
+            }
+            finally{
+                System.setOut(out);
+            }
+
+            ChannelTextUI channelUI = new ChannelTextUI(
+                    Channels.newChannel(OutputStream.nullOutputStream()), 1 << 16, 1000);
+            measure("ChannelTextUI.update()", () -> {
+                channelUI.update(station, reading);
+                return 1;
+            });
+        }
+
+        OUT.println("(sink " + (sink & 0xFF) + ")");
+    }
+
+    /**
+    * Warm up and time <op>, then print the result.
+    *
+    * @param - String name: what is measured, Op op: the operation
+    */
+    private static void measure(String name, Op op){
+        double[] results = new double[ITERATIONS];
+        for(int i = 0; i < WARMUP + ITERATIONS; i++){
+            double nsPerOp = iteration(op);
+            if(i >= WARMUP){
+                results[i - WARMUP] = nsPerOp;
+            }
+        }
+
+        double mean = 0;
+        for(double r : results){
+            mean += r;
+        }
+        mean /= ITERATIONS;
+        double variance = 0;
+        for(double r : results){
+            variance += (r - mean) * (r - mean);
+        }
+        double stddev = Math.sqrt(variance / (ITERATIONS - 1));
+
+        OUT.printf("%-44s %10.1f ns/op  +- %6.1f%n", name, mean, stddev);
+    }
+
+    /**
+    * Run <op> in batches for about ITERATION_NS and return ns per operation.
+    *
+    * @param - Op op: the operation
+    */
+    private static double iteration(Op op){
+        long ops = 0;
+        long sum = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do{
+            for(int i = 0; i < 1000; i++){
+                sum += op.run();
+            }
+            ops += 1000;
+            elapsed = System.nanoTime() - start;
+        } while(elapsed < ITERATION_NS);
+        sink += sum;
+        return (double) elapsed / ops;
+    }
+}
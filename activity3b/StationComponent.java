@@ -0,0 +1,75 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The StationComponent interface is the component of the Composite
+* pattern for weather stations: a WeatherStation is a leaf and a
+* StationGroup (a cluster or site) is a composite holding stations or
+* other groups. Both report readings through the same methods and both
+* notify Observers when their readings change.
+*
+* For a single station the values are its latest reading. For a group
+* they are aggregates over every station below it: the temperatures are
+* averages and the pressures are minimums.
+*/
+
+import java.util.Observer;
+
+public interface StationComponent{
+
+    /**
+    * Return the name of the station or group.
+    */
+    String getName();
+
+    /**
+    * Return the number of stations that contribute to the values,
+    * 1 for a station that has taken a reading, 0 for one that has not.
+    */
+    int getStationCount();
+
+    /**
+    * Return the temperature in degrees Celsius.
+    */
+    double getCelsius();
+
+    /**
+    * Return the temperature in degrees Kelvin.
+    */
+    double getKelvin();
+
+    /**
+    * Return the temperature in degrees Fahrenheit.
+    */
+    double getFahrenheit();
+
+    /**
+    * Return the pressure in inches.
+    */
+    double getPressureInches();
+
+    /**
+    * Return the pressure in millibars.
+    */
+    double getPressureMillibars();
+
+    /**
+    * Register an Observer to be told when the values change.
+    *
+    * @param - Observer o: the observer
+    */
+    void addObserver(Observer o);
+
+    /**
+    * Stop telling <o> about changes.
+    *
+    * @param - Observer o: the observer
+    */
+    void deleteObserver(Observer o);
+}
@@ -0,0 +1,227 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The StationEngine class drives many WeatherStation objects from a
+* small, shared pool of scheduler threads instead of giving every
+* station a Thread of its own. Each station keeps its own period, which
+* may change from tick to tick (see WeatherStation.setAdaptive); after
+* every tick the engine schedules the next one against the station's
+* deadline, so the rate holds under load instead of drifting.
+*
+* The main method is a benchmark that starts a large number of
+* stations and reports the thread count and heap used per station.
+*/
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Observer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StationEngine{
+    private static final AtomicInteger engines = new AtomicInteger();     // Engine numbering.
+    private static final LongAdder ERRORS = MetricsRegistry.getDefault().counter("engine.errors");
+
+    private final ScheduledExecutorService scheduler;
+    private final String metrics;               // "engine.<n>", the prefix of this engine's gauges.
+    private final Map<WeatherStation, Driver> running = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+    * Create an engine with one scheduler thread per available processor.
+    */
+    public StationEngine(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+    * Create an engine backed by <threads> daemon scheduler threads.
+    *
+    * @param - int threads: the size of the shared scheduler pool
+    */
+    public StationEngine(int threads){
+        AtomicInteger count = new AtomicInteger();
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "station-engine-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = pool;
+        metrics = "engine." + engines.incrementAndGet();
+        MetricsRegistry.getDefault().gauge(metrics + ".stations", running::size);
+        MetricsRegistry.getDefault().gauge(metrics + ".queue", () -> pool.getQueue().size());
+    }
+
+    /**
+    * Start sampling <station> at its own period. The first tick is
+    * spread randomly over one period so that thousands of stations
+    * started together do not all wake up in the same millisecond.
+    *
+    * @param - WeatherStation station: the station to drive
+    */
+    public void start(WeatherStation station){
+        running.computeIfAbsent(station, s -> {
+            long offset = TimeUnit.MILLISECONDS.toNanos(s.getPeriod());
+            Driver driver = new Driver(s, System.nanoTime() + ThreadLocalRandom.current().nextLong(offset) + 1);
+            driver.schedule();
+            return driver;
+        });
+    }
+
+    /**
+    * Stop sampling <station>. A tick already in progress is allowed to finish.
+    *
+    * @param - WeatherStation station: the station to stop
+    */
+    public void stop(WeatherStation station){
+        Driver driver = running.remove(station);
+        if(driver != null){
+            driver.cancel();
+        }
+    }
+
+    /**
+    * Return the number of stations currently being driven.
+    */
+    public int size(){
+        return running.size();
+    }
+
+    /**
+    * Return the number of ticks that threw an exception.
+    */
+    public long getErrors(){
+        return errors.sum();
+    }
+
+    /**
+    * Stop every station, release the scheduler threads and stop
+    * reporting the engine's gauges.
+    */
+    public void shutdown(){
+        running.clear();
+        scheduler.shutdownNow();
+        MetricsRegistry.getDefault().removeGauge(metrics + ".stations");
+        MetricsRegistry.getDefault().removeGauge(metrics + ".queue");
+    }
+
+    /**
+    * Ticks one station and schedules its next tick at the deadline one
+    * (current) period after the last one.
+    */
+    private class Driver implements Runnable{
+        private final WeatherStation station;
+        private long deadline;                      // When the next tick is due (nanoTime).
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> future;
+
+        Driver(WeatherStation station, long deadline){
+            this.station = station;
+            this.deadline = deadline;
+        }
+
+        /**
+        * Run a single tick. A failing observer or sensor must not stop
+        * the station's future ticks, so anything thrown, Errors such as
+        * a StackOverflowError included, is counted (getErrors and
+        * engine.errors in the MetricsRegistry) and dropped, and the next
+        * tick is scheduled regardless. A scheduled task's Throwable would
+        * only be kept in its unread future anyway.
+        */
+        public void run(){
+            if(cancelled){
+                return;
+            }
+            station.woke(deadline, System.nanoTime());
+            try{
+                station.tick();
+            }
+            catch(Throwable e){
+                errors.increment();
+                ERRORS.increment();
+            }
+            finally{
+                deadline = station.nextDeadline(deadline, System.nanoTime());
+                schedule();
+            }
+        }
+
+        /**
+        * Schedule the tick due at the current deadline.
+        */
+        void schedule(){
+            if(cancelled){
+                return;
+            }
+            try{
+                future = scheduler.schedule(this, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            catch(RejectedExecutionException e){
+                cancelled = true;                   // the engine was shut down
+            }
+        }
+
+        /**
+        * Stop scheduling ticks.
+        */
+        void cancel(){
+            cancelled = true;
+            ScheduledFuture<?> pending = future;
+            if(pending != null){
+                pending.cancel(false);
+            }
+        }
+    }
+
+    /**
+    * Benchmark: start <stations> stations (default 10000) sampling every
+    * <period> ms (default 1000), let them run for 10 seconds and report
+    * threads, heap per station and ticks per second.
+    *
+    * @param - String[] args: [stations [period]]
+    */
+    public static void main(String[] args) throws InterruptedException{
+        int stations = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long period = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int baseThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        long before = MetricsRegistry.usedHeap();
+        WeatherStation[] all = new WeatherStation[stations];
+        LongAdder ticks = new LongAdder();
+        Observer counter = (obs, arg) -> ticks.increment();
+        for(int i = 0; i < stations; i++){
+            all[i] = new WeatherStation(period);
+            all[i].addObserver(counter);
+        }
+        long after = MetricsRegistry.usedHeap();
+
+        StationEngine engine = new StationEngine();
+        for(WeatherStation ws : all){
+            engine.start(ws);
+        }
+        Thread.sleep(10000);
+        long total = ticks.sum();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        engine.shutdown();
+
+        System.out.printf("Stations:            %d%n", stations);
+        System.out.printf("Engine threads:      %d (JVM total %d)%n", threads - baseThreads, threads);
+        System.out.printf("Heap per station:    %d bytes%n", (after - before) / stations);
+        System.out.printf("Ticks per second:    %.0f (expected %.0f)%n",
+                total / 10.0, stations * 1000.0 / period);
+    }
+}
@@ -0,0 +1,159 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The StationEvents class holds the Java Flight Recorder events that the
+* WeatherStation emits, so that a recording of a production JVM shows
+* what each station's thread was doing and for how long:
+*    - weatherstation.Tick            one whole tick of a station
+*    - weatherstation.SensorRead      one read of a station's sensor
+*    - weatherstation.ObserverUpdate  one Observer's update for a tick
+* Every event carries the station id, and JFR records its start time,
+* duration and thread, so a slow SwingUI.update holding up the sampling
+* thread shows up as a long ObserverUpdate inside a long Tick.
+*
+* When no recording is running the events are never committed and the
+* JIT removes them, so they cost nothing. They can be recorded with, for
+* example, java -XX:StartFlightRecording=filename=stations.jfr TextUI
+* and viewed in JDK Mission Control or with jfr print.
+*
+* The main method records a short session and checks that every event
+* type is present.
+*/
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.TreeMap;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public final class StationEvents{
+
+    private StationEvents(){
+    }
+
+    @Name("weatherstation.Tick")
+    @Label("Station Tick")
+    @Category("Weather Station")
+    @Description("One tick of a WeatherStation: sensor reads, publishing and Observer updates")
+    static final class Tick extends Event{
+        @Label("Station Id")
+        int stationId;
+
+        @Label("Sequence")
+        long sequence;
+    }
+
+    @Name("weatherstation.SensorRead")
+    @Label("Sensor Read")
+    @Category("Weather Station")
+    @Description("One read of a WeatherStation's sensor")
+    static final class SensorRead extends Event{
+        @Label("Station Id")
+        int stationId;
+
+        @Label("Sensor")
+        String sensor;
+    }
+
+    @Name("weatherstation.ObserverUpdate")
+    @Label("Observer Update")
+    @Category("Weather Station")
+    @Description("One Observer's update call for a WeatherStation tick")
+    static final class ObserverUpdate extends Event{
+        @Label("Station Id")
+        int stationId;
+
+        @Label("Observer")
+        Class<?> observer;
+    }
+
+    /**
+    * An Observer that takes 20 ms per update, like a display that
+    * blocks the sampling thread.
+    */
+    private static final class SlowDisplay implements Observer{
+        public void update(Observable obs, Object arg){
+            try{
+                Thread.sleep(20);
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+    * Record ticks of a few stations, one with a slow Observer, for
+    * <seconds> seconds (default 2), then read the recording back and
+    * report the events found per type.
+    *
+    * @param - String[] args: [seconds]
+    */
+    public static void main(String[] args) throws Exception{
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        Path file = Files.createTempFile("stations", ".jfr");
+
+        try(Recording recording = new Recording()){
+            recording.enable(Tick.class);
+            recording.enable(SensorRead.class);
+            recording.enable(ObserverUpdate.class);
+            recording.start();
+
+            StationEngine engine = new StationEngine();
+            for(int i = 0; i < 10; i++){
+                WeatherStation station = new WeatherStation(50);
+                station.addObserver(ReadingHistory.withBudget(16 * 1024));
+                if(i == 0){
+                    station.addObserver(new SlowDisplay());
+                }
+                engine.start(station);
+            }
+            Thread.sleep(seconds * 1000L);
+            engine.shutdown();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, Integer> counts = new TreeMap<>();
+        RecordedEvent slowest = null;
+        for(RecordedEvent event : RecordingFile.readAllEvents(file)){
+            String name = event.getEventType().getName();
+            counts.merge(name, 1, Integer::sum);
+            if(name.equals("weatherstation.ObserverUpdate")
+                    && (slowest == null || event.getDuration().compareTo(slowest.getDuration()) > 0)){
+                slowest = event;
+            }
+        }
+        Files.delete(file);
+
+        counts.forEach((name, count) -> System.out.printf("%-32s %6d events%n", name, count));
+        if(slowest != null){
+            System.out.printf("Slowest update: station %d, %s, %.1f ms%n", slowest.getInt("stationId"),
+                    slowest.getClass("observer").getName(), slowest.getDuration().toNanos() / 1e6);
+        }
+        boolean complete = counts.containsKey("weatherstation.Tick")
+                && counts.containsKey("weatherstation.SensorRead")
+                && counts.containsKey("weatherstation.ObserverUpdate");
+        System.out.println(complete ? "All event types recorded" : "MISSING EVENT TYPES");
+        if(!complete){
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,594 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The StationGroup class is the composite of the StationComponent
+* pattern: a named group (a cluster, a site, a region) of WeatherStations
+* and other StationGroups, reporting aggregates over every station below
+* it through the same methods as a single station:
+*    - getCelsius(), getKelvin(), getFahrenheit(): average temperature
+*    - getPressureInches(), getPressureMillibars(): lowest pressure
+* The full set (average, minimum and maximum of both) is in getSummary().
+* Stations that have not taken a reading yet are left out.
+*
+* The group observes its children. When a station ticks only its own
+* entry is updated: the sums change by the difference from its last
+* reading and the minimums and maximums are kept in a tree over the
+* children, so an update costs O(log children) rather than a rescan.
+* The sums are integers, pressure in 1/100ths of an inch as Units rounds
+* it, so that however many differences are applied over a long run they
+* stay exact.
+* The group then publishes a new immutable Summary and notifies its own
+* Observers, which include any parent group, so a tick travels up the
+* hierarchy touching one entry per level.
+*
+* refresh() recomputes everything from scratch, splitting the children
+* (and their subgroups) over the common fork/join pool; it is used when
+* a group is built from a list of children.
+*
+* The main method builds sites of clusters of stations, ticks them and
+* compares the cost of incremental updates with rescanning.
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class StationGroup extends Observable implements StationComponent{
+    private static final int SPLIT = 256;      // Children per fork/join task.
+    private static final Object STRUCTURE = new Object();  // Held while checking for cycles and linking.
+    private static final double MB = 33.8637526;  // Inches to millibars converstion.
+
+    /**
+    * Immutable aggregate over the stations of a group.
+    */
+    public static final class Summary{
+        static final Summary EMPTY = new Summary(0, 0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+        private final int count;            // Stations with a reading.
+        private final long kelvinSum;       // Sum of their raw Kelvin readings.
+        private final long pressureSum;     // Sum of their pressures in 1/100ths of an inch.
+        private final int minKelvin;
+        private final int maxKelvin;
+        private final double minPressure;
+        private final double maxPressure;
+
+        Summary(int count, long kelvinSum, long pressureSum, int minKelvin, int maxKelvin,
+                double minPressure, double maxPressure){
+            this.count = count;
+            this.kelvinSum = kelvinSum;
+            this.pressureSum = pressureSum;
+            this.minKelvin = minKelvin;
+            this.maxKelvin = maxKelvin;
+            this.minPressure = minPressure;
+            this.maxPressure = maxPressure;
+        }
+
+        /**
+        * Return the number of stations with a reading.
+        */
+        public int getStationCount(){
+            return count;
+        }
+
+        /**
+        * Return the average raw Kelvin reading, in 1/100ths of a degree,
+        * or NaN if there are no stations.
+        */
+        public double getAverageKelvin(){
+            return count == 0 ? Double.NaN : (double) kelvinSum / count;
+        }
+
+        /**
+        * Return the lowest raw Kelvin reading, or Integer.MAX_VALUE if
+        * there are no stations.
+        */
+        public int getMinKelvin(){
+            return minKelvin;
+        }
+
+        /**
+        * Return the highest raw Kelvin reading, or Integer.MIN_VALUE if
+        * there are no stations.
+        */
+        public int getMaxKelvin(){
+            return maxKelvin;
+        }
+
+        /**
+        * Return the average pressure in inches, from each station's
+        * pressure in 1/100ths, or NaN if there are no stations.
+        */
+        public double getAveragePressure(){
+            return count == 0 ? Double.NaN : pressureSum / 100.0 / count;
+        }
+
+        /**
+        * Return the lowest pressure in inches, or +infinity if there are
+        * no stations.
+        */
+        public double getMinPressure(){
+            return minPressure;
+        }
+
+        /**
+        * Return the highest pressure in inches, or -infinity if there
+        * are no stations.
+        */
+        public double getMaxPressure(){
+            return maxPressure;
+        }
+
+        public String toString(){
+            return "Summary[stations=" + count + ", kelvin=" + getAverageKelvin() + " (" + minKelvin + ".." + maxKelvin
+                    + "), pressure=" + getAveragePressure() + " (" + minPressure + ".." + maxPressure + ")]";
+        }
+    }
+
+    /**
+    * Observer registered on one child, which knows the child's index
+    * so that an update goes straight to its entry.
+    */
+    private final class ChildLink implements Observer{
+        final StationComponent child;
+        final int index;
+
+        ChildLink(StationComponent child, int index){
+            this.child = child;
+            this.index = index;
+        }
+
+        public void update(Observable obs, Object arg){
+            childChanged(this);
+        }
+    }
+
+    private final String name;
+    private final List<ChildLink> links = new ArrayList<>();
+
+    // Per child: its contribution to the sums.
+    private int[] counts = new int[0];
+    private long[] kelvinSums = new long[0];
+    private long[] pressureSums = new long[0];
+
+    // Trees over the children: leaves at [capacity, 2 * capacity),
+    // node i holds the min or max of nodes 2i and 2i + 1.
+    private int capacity;
+    private int[] minKelvin = new int[0];
+    private int[] maxKelvin = new int[0];
+    private double[] minPressure = new double[0];
+    private double[] maxPressure = new double[0];
+
+    private int count;              // Totals over all children.
+    private long kelvinSum;
+    private long pressureSum;
+
+    private volatile Summary summary = Summary.EMPTY;
+
+    /**
+    * Create an empty group.
+    *
+    * @param - String name: the name of the group
+    */
+    public StationGroup(String name){
+        this.name = name;
+        grow(16);
+    }
+
+    /**
+    * Create a group of <children> and compute its aggregates with
+    * refresh().
+    *
+    * @param - String name: the name of the group,
+    *          Collection children: WeatherStations and StationGroups
+    */
+    public StationGroup(String name, Collection<? extends StationComponent> children){
+        this.name = name;
+        grow(Math.max(16, Integer.highestOneBit(Math.max(1, children.size() - 1)) << 1));
+        for(StationComponent child : children){
+            check(child);
+            link(child);
+        }
+        refresh();
+    }
+
+    /**
+    * Add a WeatherStation or StationGroup to the group.
+    *
+    * @param - StationComponent child: the station or group to add
+    */
+    public void add(StationComponent child){
+        ChildLink link;
+        synchronized(STRUCTURE){
+            check(child);
+            link = link(child);
+        }
+        childChanged(link);
+    }
+
+    /**
+    * Check that <child> is a station or a group that does not contain
+    * this one. Called without this group's lock: contains() takes the
+    * lock of every group below <child> in turn, and holding ours while
+    * doing so would deadlock against an add in the other direction.
+    * STRUCTURE keeps two adds from closing a cycle between them.
+    */
+    private void check(StationComponent child){
+        if(!(child instanceof WeatherStation) && !(child instanceof StationGroup)){
+            throw new IllegalArgumentException("not a WeatherStation or StationGroup: " + child);
+        }
+        if(child instanceof StationGroup && ((StationGroup) child).contains(this)){
+            throw new IllegalArgumentException(child.getName() + " already contains " + name);
+        }
+    }
+
+    /**
+    * Give <child> an entry and start observing it.
+    */
+    private synchronized ChildLink link(StationComponent child){
+        int index = links.size();
+        if(index == capacity){
+            grow(capacity * 2);
+        }
+        ChildLink link = new ChildLink(child, index);
+        links.add(link);
+        child.addObserver(link);
+        return link;
+    }
+
+    /**
+    * Return true if <group> is this group or below it.
+    */
+    private boolean contains(StationGroup group){
+        if(group == this){
+            return true;
+        }
+        for(StationComponent child : getChildren()){
+            if(child instanceof StationGroup && ((StationGroup) child).contains(group)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+    * Resize the entries for <size> children and rebuild the trees.
+    */
+    private void grow(int size){
+        counts = Arrays.copyOf(counts, size);
+        kelvinSums = Arrays.copyOf(kelvinSums, size);
+        pressureSums = Arrays.copyOf(pressureSums, size);
+
+        int[] minK = new int[2 * size];
+        int[] maxK = new int[2 * size];
+        double[] minP = new double[2 * size];
+        double[] maxP = new double[2 * size];
+        Arrays.fill(minK, Integer.MAX_VALUE);
+        Arrays.fill(maxK, Integer.MIN_VALUE);
+        Arrays.fill(minP, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxP, Double.NEGATIVE_INFINITY);
+        for(int i = 0; i < capacity; i++){
+            minK[size + i] = minKelvin[capacity + i];
+            maxK[size + i] = maxKelvin[capacity + i];
+            minP[size + i] = minPressure[capacity + i];
+            maxP[size + i] = maxPressure[capacity + i];
+        }
+        capacity = size;
+        minKelvin = minK;
+        maxKelvin = maxK;
+        minPressure = minP;
+        maxPressure = maxP;
+        rebuild();
+    }
+
+    /**
+    * Recompute every inner node of the trees from the leaves.
+    */
+    private void rebuild(){
+        for(int node = capacity - 1; node > 0; node--){
+            pull(node);
+        }
+    }
+
+    /**
+    * Recompute inner node <node> from its two children.
+    */
+    private void pull(int node){
+        int left = 2 * node;
+        int right = left + 1;
+        minKelvin[node] = Math.min(minKelvin[left], minKelvin[right]);
+        maxKelvin[node] = Math.max(maxKelvin[left], maxKelvin[right]);
+        minPressure[node] = Math.min(minPressure[left], minPressure[right]);
+        maxPressure[node] = Math.max(maxPressure[left], maxPressure[right]);
+    }
+
+    /**
+    * Copy the current values of a child into entry <index> (sums and
+    * tree leaf) without updating totals or inner nodes.
+    *
+    * @return - int: the change in the station count
+    */
+    private int load(ChildLink link){
+        int i = link.index;
+        int leaf = capacity + i;
+        int before = counts[i];
+        if(link.child instanceof StationGroup){
+            Summary s = ((StationGroup) link.child).summary;
+            counts[i] = s.count;
+            kelvinSums[i] = s.kelvinSum;
+            pressureSums[i] = s.pressureSum;
+            minKelvin[leaf] = s.minKelvin;
+            maxKelvin[leaf] = s.maxKelvin;
+            minPressure[leaf] = s.minPressure;
+            maxPressure[leaf] = s.maxPressure;
+        }
+        else{
+            Reading reading = ((WeatherStation) link.child).getReading();
+            boolean taken = reading.getSequence() > 0;
+            counts[i] = taken ? 1 : 0;
+            kelvinSums[i] = taken ? reading.getRawKelvin() : 0;
+            pressureSums[i] = taken ? Units.inches(reading.getPressureInches()) : 0;
+            minKelvin[leaf] = taken ? reading.getRawKelvin() : Integer.MAX_VALUE;
+            maxKelvin[leaf] = taken ? reading.getRawKelvin() : Integer.MIN_VALUE;
+            minPressure[leaf] = taken ? reading.getPressureInches() : Double.POSITIVE_INFINITY;
+            maxPressure[leaf] = taken ? reading.getPressureInches() : Double.NEGATIVE_INFINITY;
+        }
+        return counts[i] - before;
+    }
+
+    /**
+    * Called when a child has changed: reload its entry, update the
+    * totals and the path from its leaf to the root of the trees,
+    * publish a new Summary and notify Observers.
+    */
+    private void childChanged(ChildLink link){
+        Summary next;
+        synchronized(this){
+            int i = link.index;
+            long oldKelvin = kelvinSums[i];
+            long oldPressure = pressureSums[i];
+            count += load(link);
+            kelvinSum += kelvinSums[i] - oldKelvin;
+            pressureSum += pressureSums[i] - oldPressure;
+            for(int node = (capacity + i) / 2; node > 0; node /= 2){
+                pull(node);
+            }
+            next = publish();
+        }
+        setChanged();
+        notifyObservers(next);
+    }
+
+    /**
+    * Publish the totals and tree roots as the current Summary.
+    */
+    private Summary publish(){
+        Summary next = new Summary(count, kelvinSum, pressureSum,
+                minKelvin[1], maxKelvin[1], minPressure[1], maxPressure[1]);
+        summary = next;
+        return next;
+    }
+
+    /**
+    * Recompute the aggregates from scratch: every child's entry is
+    * reloaded (subgroups are refreshed first) in parallel over the
+    * common fork/join pool, then the totals and trees are rebuilt.
+    */
+    public void refresh(){
+        Summary next = recompute();
+        setChanged();
+        notifyObservers(next);
+    }
+
+    /**
+    * The work of refresh(), without notifying Observers: a parent that
+    * is refreshing holds its own lock and must not be called back.
+    */
+    private Summary recompute(){
+        synchronized(this){
+            ForkJoinPool.commonPool().invoke(new Reload(0, links.size()));
+            count = 0;
+            kelvinSum = 0;
+            pressureSum = 0;
+            for(int i = 0; i < links.size(); i++){
+                count += counts[i];
+                kelvinSum += kelvinSums[i];
+                pressureSum += pressureSums[i];
+            }
+            rebuild();
+            return publish();
+        }
+    }
+
+    /**
+    * Fork/join task reloading the entries of children [from, to).
+    * Each entry and tree leaf is written by exactly one task.
+    */
+    private final class Reload extends RecursiveAction{
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Reload(int from, int to){
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute(){
+            if(to - from > SPLIT){
+                int mid = (from + to) >>> 1;
+                invokeAll(new Reload(from, mid), new Reload(mid, to));
+                return;
+            }
+            for(int i = from; i < to; i++){
+                ChildLink link = links.get(i);
+                if(link.child instanceof StationGroup){
+                    ((StationGroup) link.child).recompute();
+                }
+                load(link);
+            }
+        }
+    }
+
+    /**
+    * Return the latest aggregates.
+    */
+    public Summary getSummary(){
+        return summary;
+    }
+
+    /**
+    * Return the direct children of the group.
+    */
+    public synchronized List<StationComponent> getChildren(){
+        List<StationComponent> children = new ArrayList<>(links.size());
+        for(ChildLink link : links){
+            children.add(link.child);
+        }
+        return Collections.unmodifiableList(children);
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public int getStationCount(){
+        return summary.count;
+    }
+
+    /**
+    * Return the average temperature in degrees Celsius.
+    */
+    public double getCelsius(){
+        return getKelvin() - 273.15;
+    }
+
+    /**
+    * Return the average temperature in degrees Kelvin.
+    */
+    public double getKelvin(){
+        return summary.getAverageKelvin() / 100.0;
+    }
+
+    /**
+    * Return the average temperature in degrees Fahrenheit.
+    */
+    public double getFahrenheit(){
+        return (9 * getCelsius() / 5) + 32;
+    }
+
+    /**
+    * Return the lowest pressure in inches.
+    */
+    public double getPressureInches(){
+        return summary.minPressure;
+    }
+
+    /**
+    * Return the lowest pressure in millibars.
+    */
+    public double getPressureMillibars(){
+        return summary.minPressure * MB;
+    }
+
+    public String toString(){
+        return "StationGroup[" + name + ", " + summary + "]";
+    }
+
+    /**
+    * Benchmark: build <sites> sites of <clusters> clusters of <stations>
+    * stations, tick every station, and compare the cost per tick of
+    * the incremental updates with a full rescan of the stations.
+    *
+    * @param - String[] args: [sites [clusters [stations [ticks]]]]
+    */
+    public static void main(String[] args){
+        int sites = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int clusters = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int perCluster = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int ticks = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        List<WeatherStation> all = new ArrayList<>();
+        List<StationGroup> siteGroups = new ArrayList<>();
+        for(int s = 0; s < sites; s++){
+            List<StationGroup> clusterGroups = new ArrayList<>();
+            for(int c = 0; c < clusters; c++){
+                List<WeatherStation> stations = new ArrayList<>();
+                for(int i = 0; i < perCluster; i++){
+                    WeatherStation station = new WeatherStation(1000, all.size());
+                    station.tick();
+                    stations.add(station);
+                    all.add(station);
+                }
+                clusterGroups.add(new StationGroup("cluster " + s + "." + c, stations));
+            }
+            siteGroups.add(new StationGroup("site " + s, clusterGroups));
+        }
+        long start = System.nanoTime();
+        StationGroup region = new StationGroup("region", siteGroups);
+        System.out.printf("Built %,d stations, fork/join rollup in %.1f ms%n", all.size(),
+                (System.nanoTime() - start) / 1e6);
+
+        // Ticks without groups, for the baseline.
+        List<WeatherStation> plain = new ArrayList<>();
+        for(int i = 0; i < all.size(); i++){
+            plain.add(new WeatherStation(1000, i));
+        }
+
+        long grouped = 0;
+        long alone = 0;
+        long rescan = 0;
+        for(int t = 0; t < ticks; t++){
+            start = System.nanoTime();
+            for(WeatherStation station : all){
+                station.tick();
+            }
+            grouped += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(WeatherStation station : plain){
+                station.tick();
+            }
+            alone += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double min = Double.POSITIVE_INFINITY;
+            long sum = 0;
+            long pressures = 0;
+            for(WeatherStation station : all){
+                Reading reading = station.getReading();
+                min = Math.min(min, reading.getPressureInches());
+                sum += reading.getRawKelvin();
+                pressures += Units.inches(reading.getPressureInches());
+            }
+            rescan += System.nanoTime() - start;
+
+            Summary s = region.getSummary();
+            double average = pressures / 100.0 / all.size();
+            if(s.getMinPressure() != min || s.kelvinSum != sum || s.getStationCount() != all.size()
+                    || s.getAveragePressure() != average){
+                System.out.println("MISMATCH: " + s + " vs min " + min + ", sum " + sum + ", pressure " + average);
+            }
+        }
+
+        double n = (double) all.size() * ticks;
+        System.out.printf("Tick, no groups:          %6.0f ns per station%n", alone / n);
+        System.out.printf("Tick, 3 levels of groups: %6.0f ns per station%n", grouped / n);
+        System.out.printf("Rescan of all stations:   %6.2f ms per region view%n", rescan / 1e6 / ticks);
+        System.out.println(region);
+    }
+}
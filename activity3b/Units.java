@@ -0,0 +1,147 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The Units class converts raw sensor values to every display unit in
+* fixed point, as ints in 1/100ths of the unit. It is shared by all
+* displays so they agree on the rounding.
+*
+* Temperatures start from the raw Kelvin sensor value (1/100ths K) and
+* use integer arithmetic only:
+*    Celsius    = K - 27315, exact
+*    Fahrenheit = C * 9 / 5 + 3200, rounded to nearest; 9C/5 is never
+*                 exactly halfway, so the rounding is unambiguous
+* Fahrenheit is precomputed for the range the sensor reports,
+* 23315..38315, and computed directly outside it.
+*
+* Pressures start from the barometer's double, in inches of mercury, so
+* they take one floating point multiply each, rounded to nearest:
+*    millibars = inches * 33.8637526
+*
+* The text displays print these values with putFixed and fixed, which
+* format hundredths as %.2f would without a Formatter.
+*/
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class Units{
+    public static final int MIN_KELVIN = 23315;        // Lowest raw sensor reading (-40 C).
+    public static final int MAX_KELVIN = 38315;        // Highest raw sensor reading (110 C).
+
+    private static final int KTOC = -27315;             // Kelvin to Celsius conversion.
+    private static final long MB_E7 = 338637526L;       // Millibars per inch * 10^7.
+
+    private static final int[] FAHRENHEIT = new int[MAX_KELVIN - MIN_KELVIN + 1];
+
+    static{
+        for(int k = MIN_KELVIN; k <= MAX_KELVIN; k++){
+            FAHRENHEIT[k - MIN_KELVIN] = computeFahrenheit(k);
+        }
+    }
+
+    private Units(){
+    }
+
+    /**
+    * Return the Celsius temperature in 1/100ths of a degree.
+    *
+    * @param - int kelvin: raw Kelvin reading in 1/100ths
+    */
+    public static int celsius(int kelvin){
+        return kelvin + KTOC;
+    }
+
+    /**
+    * Return the Fahrenheit temperature in 1/100ths of a degree.
+    *
+    * @param - int kelvin: raw Kelvin reading in 1/100ths
+    */
+    public static int fahrenheit(int kelvin){
+        int index = kelvin - MIN_KELVIN;
+        if(index >= 0 && index < FAHRENHEIT.length){
+            return FAHRENHEIT[index];
+        }
+        return computeFahrenheit(kelvin);
+    }
+
+    /**
+    * Return the pressure in 1/100ths of an inch, rounded to nearest.
+    *
+    * @param - double inches: pressure in inches
+    */
+    public static int inches(double inches){
+        return (int) Math.round(inches * 100);
+    }
+
+    /**
+    * Return the pressure in 1/100ths of a millibar, rounded to nearest.
+    *
+    * @param - double inches: pressure in inches
+    */
+    public static int millibars(double inches){
+        return (int) Math.round(inches * (MB_E7 / 1e5));
+    }
+
+    /**
+    * Put <hundredths> into <buffer> as ASCII with two decimals, right
+    * aligned in <width> characters, as %<width>.2f would. Nothing is
+    * allocated.
+    *
+    * @param - ByteBuffer buffer: the destination, int hundredths: the value in 1/100ths,
+    *          int width: the least number of characters, or 0
+    */
+    public static void putFixed(ByteBuffer buffer, int hundredths, int width){
+        long value = Math.abs((long) hundredths);
+        long whole = value / 100;
+        int digits = 1;
+        for(long rest = whole; rest >= 10; rest /= 10){
+            digits++;
+        }
+
+        for(int i = digits + 3 + (hundredths < 0 ? 1 : 0); i < width; i++){
+            buffer.put((byte) ' ');
+        }
+        if(hundredths < 0){
+            buffer.put((byte) '-');
+        }
+        int position = buffer.position() + digits;
+        buffer.position(position);
+        do{
+            buffer.put(--position, (byte) ('0' + whole % 10));
+            whole /= 10;
+        } while(whole != 0);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + value / 10 % 10));
+        buffer.put((byte) ('0' + value % 10));
+    }
+
+    /**
+    * Return <hundredths> with two decimals, right aligned in <width>
+    * characters, as String.format("%<width>.2f") would.
+    *
+    * @param - int hundredths: the value in 1/100ths, int width: the least number of characters, or 0
+    * @return - String: the formatted value
+    */
+    public static String fixed(int hundredths, int width){
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(width, 16));
+        putFixed(buffer, hundredths, width);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+    * Compute Fahrenheit hundredths as floor((18C + 5) / 10) + 3200,
+    * i.e. 9C/5 rounded to nearest, without a branch on the sign.
+    *
+    * @param - int kelvin: raw Kelvin reading in 1/100ths
+    */
+    private static int computeFahrenheit(int kelvin){
+        return Math.floorDiv(18 * (kelvin + KTOC) + 5, 10) + 3200;
+    }
+}
@@ -1,114 +1,593 @@
-/**
-* Initial Author
-*      Michael J. Lutz
-*
-* Other Contributers
-*      Ellie Parobek
-*
-* Acknowledgements
-*/
-
-/**
-* Class for a simple computer based weather station that reports the current
-* temperature (in Celsius) every second. The station is attached to a
-* sensor that reports the temperature as a 16-bit number (0 to 65535)
-* representing the Kelvin temperature to the nearest 1/100th of a degree.
-*
-* This class is implements Runnable so that it can be embedded in a Thread
-* which runs the periodic sensing.
-*
-* The class also extends Observable so that it can notify registered
-* objects whenever its state changes. Convenience functions are provided
-* to access the temperature in different schemes (Celsius, Kelvin, etc.)
-*/
-
-import java.util.Observable;
-
-public class WeatherStation extends Observable implements Runnable{
-
-    private final KelvinTempSensor sensor; // Temperature sensor.
-    private final Barometer barometer;      // Barometer sensor.
-
-    private final long PERIOD = 1000;      // 1 sec = 1000 ms
-    private final int KTOC = -27315;       // Kelvin to Celsius conversion.
-    private final double MB = 33.8637526;  // Inches to millibars converstion.
-
-    private int currentReading;            // Current reading of the Kelvin sensor.
-    private double currentPressure;         // Current reading of the Barometer.
-
-    /**
-    * When a WeatherStation object is created, it in turn creates the sensor
-    * objects it will use.
-    */
-    public WeatherStation(){
-        sensor = new KelvinTempSensor();
-        barometer = new Barometer();
-        currentReading = sensor.reading();
-    }
-
-    /**
-    * The "run" method called by the enclosing Thread object when started.
-    * Repeatedly sleeps a second, acquires the current temperature from its
-    * sensor, and notifies registered Observers of the change.
-    */
-    public void run(){
-        while(true){
-            try{
-                Thread.sleep(PERIOD);
-            } 
-            catch(Exception e){
-            
-            }    // ignore exceptions
-
-            /*
-             * Get next reading and notify any Observers.
-             */
-            synchronized(this){
-                currentReading = sensor.reading();
-                currentPressure = barometer.pressure();
-            }
-            setChanged();
-            notifyObservers();
-        }
-    }
-
-    /**
-    * Return the current reading in degrees celsius as a
-    * double precision number.
-    */
-    public synchronized double getCelsius(){
-        return (currentReading + KTOC) / 100.0;
-    }
-
-    /**
-    * Return the current reading in degrees Kelvin as a
-    * double precision number.
-    */
-    public synchronized double getKelvin(){
-        return currentReading / 100.0;
-    }
-    
-    /**
-    * Return the current reading in degrees Fahrenheit as a
-    * double precision number.
-    */
-    public synchronized double getFahrenheit(){
-        return (9/5 * getCelsius()) + 32;
-    }
-    
-    /**
-    * Return the current pressure in inches as a
-    * double precision number.
-    */
-    public synchronized double getPressureInches(){
-        return currentPressure;
-    }
-    
-    /**
-    * Return the current pressure in millibars as a
-    * double precision number.
-    */
-    public synchronized double getPressureMillibars(){
-        return getPressureInches() * MB;
-    }
-}
+/**
+* Initial Author
+*      Michael J. Lutz
+*
+* Other Contributers
+*      Ellie Parobek
+*
+* Acknowledgements
+*/
+
+/**
+* Class for a simple computer based weather station that reports the current
+* temperature (in Celsius) every second. The station is attached to a
+* sensor that reports the temperature as a 16-bit number (0 to 65535)
+* representing the Kelvin temperature to the nearest 1/100th of a degree.
+*
+* This class is implements Runnable so that it can be embedded in a Thread
+* which runs the periodic sensing. When many stations share one JVM, the
+* StationEngine drives them instead by calling tick() on a shared scheduler.
+*
+* The class also extends Observable so that it can notify registered
+* objects whenever its state changes. Convenience functions are provided
+* to access the temperature in different schemes (Celsius, Kelvin, etc.)
+*
+* A station can also publish an immutable Reading of every tick to a
+* ReadingBus, which fans it out to many subscribers without locking.
+*
+* Each tick is published atomically as one Reading through a volatile
+* reference, so the getters never lock and Observers that call
+* getReading() always see the values of a single tick.
+*
+* The sampling period can be anything from 1 ms upwards and can be
+* changed while running. In adaptive mode the station halves its period
+* (down to a minimum) whenever the temperature or pressure moved by more
+* than a threshold since the last tick, and otherwise lengthens it by a
+* quarter (up to a maximum). Ticks are scheduled against absolute
+* deadlines so that processing time does not make the rate drift.
+*
+* Besides its temperature sensor and barometer, a station can poll any
+* number of extra Sensors (humidity, wind, devices), added and removed
+* while it runs or discovered with ServiceLoader by loadSensors(). Their
+* values are part of each Reading. Sensors that may block are read in
+* parallel and waited for at most half a period, so one slow device does
+* not stall the tick.
+*
+* A station is the leaf of the StationComponent composite; StationGroups
+* of stations and other groups report aggregates through the same methods.
+*
+* Every tick reports to the default MetricsRegistry: tick, sensor read,
+* lock wait, wakeup lateness and Observer dispatch latencies, and late
+* and skipped ticks. The counters cover every tick; the timings are taken
+* on one tick in SAMPLE, and time the Observers together rather than one
+* by one, which keeps their cost to a few ns per tick. The station keeps
+* its own copy-on-write list of Observers instead of the one in
+* Observable, so notifying them never locks.
+*
+* Ticks, sensor reads and Observer updates are also Java Flight Recorder
+* events (see StationEvents), free unless a recording is running.
+*/
+
+import java.util.Arrays;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.ServiceLoader;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class WeatherStation extends Observable implements Runnable, StationComponent{
+    private static final AtomicInteger ids = new AtomicInteger(); // Station id source.
+
+    private static final int SAMPLE = 16;      // Time one tick in this many.
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    private static final LongAdder TICKS = METRICS.counter("station.ticks");
+    private static final LongAdder LATE = METRICS.counter("station.ticks.late");
+    private static final LongAdder SKIPPED = METRICS.counter("station.ticks.skipped");
+    private static final LatencyHistogram TICK = METRICS.latency("station.tick");
+    private static final LatencyHistogram WAKEUP = METRICS.latency("station.wakeup.late");
+    private static final LatencyHistogram LOCK_WAIT = METRICS.latency("station.lock.wait");
+    private static final LatencyHistogram SENSOR_READ = METRICS.latency("station.sensor.read");
+    private static final LatencyHistogram SENSOR_POLL = METRICS.latency("station.sensor.poll");
+    private static final LatencyHistogram DISPATCH = METRICS.latency("station.dispatch");
+
+    private volatile Observer[] observers = new Observer[0]; // Copied on change.
+    private int untilSample;               // Ticks until the next timed one.
+
+    private final int id;                  // Unique id of this station.
+    private final KelvinTempSensor sensor; // Temperature sensor.
+    private final Barometer barometer;      // Barometer sensor.
+    private final SensorPoller poller = new SensorPoller(); // Extra sensors.
+
+    private volatile long period;          // Current sampling period in ms.
+
+    private volatile boolean adaptive;     // Adapt the period to the rate of change?
+    private volatile long minPeriod;       // Fastest adaptive period in ms.
+    private volatile long maxPeriod;       // Slowest adaptive period in ms.
+    private volatile int kelvinStep;       // Change (1/100ths K) that counts as fast.
+    private volatile double pressureStep;  // Change (inches) that counts as fast.
+
+    private volatile Reading current;      // Latest reading of both sensors.
+    private long sequence;                 // Number of ticks taken so far.
+
+    private volatile ReadingBus bus;        // Where readings are published, if anywhere.
+
+    /**
+    * When a WeatherStation object is created, it in turn creates the sensor
+    * objects it will use. The station samples once a second.
+    */
+    public WeatherStation(){
+        this(1000);                        // 1 sec = 1000 ms
+    }
+
+    /**
+    * Create a station that samples every <period> milliseconds.
+    *
+    * @param - long period: the sampling period in ms, must be positive
+    */
+    public WeatherStation(long period){
+        this(period, new KelvinTempSensor(), new Barometer());
+    }
+
+    /**
+    * Create a station that samples every <period> milliseconds from
+    * simulated sensors seeded from <seed>, so that two stations created
+    * with the same seed report the same sequence of readings.
+    *
+    * @param - long period: the sampling period in ms, must be positive,
+    *          long seed: the simulation seed
+    */
+    public WeatherStation(long period, long seed){
+        this(period, new SplittableRandom(seed));
+    }
+
+    /**
+    * Split one generator per sensor off <seeds>.
+    */
+    private WeatherStation(long period, SplittableRandom seeds){
+        this(period, new KelvinTempSensor(seeds.split()), new Barometer(seeds.split()));
+    }
+
+    /**
+    * Create a station that samples every <period> milliseconds from
+    * the given temperature sensor and barometer.
+    *
+    * @param - long period: the sampling period in ms, must be positive,
+    *          KelvinTempSensor sensor: the temperature sensor, Barometer barometer: the barometer
+    */
+    public WeatherStation(long period, KelvinTempSensor sensor, Barometer barometer){
+        setPeriod(period);
+        id = ids.incrementAndGet();
+        this.sensor = sensor;
+        this.barometer = barometer;
+        current = new Reading(id, 0, System.currentTimeMillis(), sensor.reading(), barometer.pressure());
+    }
+
+    /**
+    * The "run" method called by the enclosing Thread object when started.
+    * Repeatedly sleeps until the next deadline, one period after the last,
+    * acquires the current readings from its sensors, and notifies registered
+    * Observers of the change. Returns when the thread is interrupted.
+    */
+    public void run(){
+        long deadline = System.nanoTime();
+        while(true){
+            deadline = nextDeadline(deadline, System.nanoTime());
+            try{
+                long delay = deadline - System.nanoTime();
+                if(delay > 0){
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+            } 
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            woke(deadline, System.nanoTime());
+            tick();
+        }
+    }
+
+    /**
+    * Return the deadline of the tick after the one due at <deadline>.
+    * Deadlines advance by exactly one period, so time spent in a tick
+    * does not accumulate; if the station has fallen more than a period
+    * behind, the missed ticks are skipped rather than run back to back.
+    *
+    * @param - long deadline: the previous deadline (System.nanoTime()),
+    *          long now: the current System.nanoTime()
+    * @return - long: the next deadline
+    */
+    public long nextDeadline(long deadline, long now){
+        long step = TimeUnit.MILLISECONDS.toNanos(period);
+        deadline += step;
+        if(deadline < now - step){
+            SKIPPED.add((now - deadline) / step);
+            return now;
+        }
+        return deadline;
+    }
+
+    /**
+    * Record how late the thread woke up for the tick due at <deadline>,
+    * if the tick is one of those timed. A tick more than half a period
+    * late counts as late.
+    *
+    * @param - long deadline: when the tick was due (System.nanoTime()),
+    *          long now: the current System.nanoTime()
+    */
+    public void woke(long deadline, long now){
+        long lateness = now - deadline;
+        if(untilSample <= 0){
+            WAKEUP.record(lateness);    // the tick about to run is timed
+        }
+        if(lateness > TimeUnit.MILLISECONDS.toNanos(period) / 2){
+            LATE.increment();
+        }
+    }
+
+    /**
+    * Take one sample: get the next readings from the sensors, publish
+    * them to the bus and notify any Observers. The new Reading is passed
+    * as the Observer argument. Called once per period, either by run()
+    * or by a StationEngine.
+    */
+    public void tick(){
+        StationEvents.Tick event = new StationEvents.Tick();
+        event.begin();
+        TICKS.increment();
+        boolean timed = --untilSample < 0;
+        if(timed){
+            untilSample = SAMPLE - 1;
+        }
+        long start = timed ? System.nanoTime() : 0;
+        SensorPoller.Sample extra = poller.poll(TimeUnit.MILLISECONDS.toNanos(period) / 2);
+        long polled = start;
+        if(timed && extra.getSensors().length > 0){
+            polled = System.nanoTime();
+            SENSOR_POLL.record(polled - start);
+        }
+        Reading reading;
+        synchronized(this){
+            long locked = 0;
+            if(timed){
+                locked = System.nanoTime();
+                LOCK_WAIT.record(locked - polled);
+            }
+            Reading previous = current;
+            reading = new Reading(id, ++sequence, System.currentTimeMillis(),
+                    readKelvin(), readPressure(), extra.getSensors(), extra.getValues());
+            if(timed){
+                SENSOR_READ.record(System.nanoTime() - locked);
+            }
+            current = reading;
+            if(adaptive){
+                adapt(previous, reading);
+            }
+        }
+        ReadingBus target = bus;
+        if(target != null){
+            target.publish(reading);
+        }
+        setChanged();
+        dispatch(reading, timed);
+        if(timed){
+            TICK.record(System.nanoTime() - start);
+        }
+        if(event.shouldCommit()){
+            event.stationId = id;
+            event.sequence = reading.getSequence();
+            event.commit();
+        }
+    }
+
+    /**
+    * Read the temperature sensor, as a flight recorder event.
+    */
+    private int readKelvin(){
+        StationEvents.SensorRead event = new StationEvents.SensorRead();
+        event.begin();
+        int kelvin = sensor.reading();
+        if(event.shouldCommit()){
+            event.stationId = id;
+            event.sensor = "temperature";
+            event.commit();
+        }
+        return kelvin;
+    }
+
+    /**
+    * Read the barometer, as a flight recorder event.
+    */
+    private double readPressure(){
+        StationEvents.SensorRead event = new StationEvents.SensorRead();
+        event.begin();
+        double pressure = barometer.pressure();
+        if(event.shouldCommit()){
+            event.stationId = id;
+            event.sensor = "pressure";
+            event.commit();
+        }
+        return pressure;
+    }
+
+    /**
+    * Call one Observer's update, as a flight recorder event.
+    */
+    private void update(Observer observer, Object arg){
+        StationEvents.ObserverUpdate event = new StationEvents.ObserverUpdate();
+        event.begin();
+        observer.update(this, arg);
+        if(event.shouldCommit()){
+            event.stationId = id;
+            event.observer = observer.getClass();
+            event.commit();
+        }
+    }
+
+    /**
+    * Register <o> to be notified of every reading. Adding the same
+    * Observer twice has no effect.
+    *
+    * @param - Observer o: the observer
+    */
+    public synchronized void addObserver(Observer o){
+        if(o == null){
+            throw new NullPointerException();
+        }
+        for(Observer observer : observers){
+            if(observer.equals(o)){
+                return;
+            }
+        }
+        Observer[] next = Arrays.copyOf(observers, observers.length + 1);
+        next[observers.length] = o;
+        observers = next;
+    }
+
+    /**
+    * Stop notifying <o>.
+    *
+    * @param - Observer o: the observer
+    */
+    public synchronized void deleteObserver(Observer o){
+        Observer[] current = observers;
+        for(int i = 0; i < current.length; i++){
+            if(current[i].equals(o)){
+                Observer[] next = new Observer[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+                observers = next;
+                return;
+            }
+        }
+    }
+
+    /**
+    * Stop notifying every Observer.
+    */
+    public synchronized void deleteObservers(){
+        observers = new Observer[0];
+    }
+
+    /**
+    * Return the number of Observers.
+    */
+    public int countObservers(){
+        return observers.length;
+    }
+
+    /**
+    * If the station has changed, notify every Observer, most recently
+    * added first as Observable does.
+    *
+    * @param - Object arg: the argument passed to every update
+    */
+    public void notifyObservers(Object arg){
+        dispatch(arg, false);
+    }
+
+    /**
+    * Notify every Observer if the station has changed and, if <timed>,
+    * record the time all the updates took together.
+    */
+    private void dispatch(Object arg, boolean timed){
+        Observer[] current;
+        synchronized(this){
+            if(!hasChanged()){
+                return;
+            }
+            clearChanged();
+            current = observers;
+        }
+        long start = timed ? System.nanoTime() : 0;
+        for(int i = current.length - 1; i >= 0; i--){
+            update(current[i], arg);
+        }
+        if(timed){
+            DISPATCH.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+    * Return the latest reading. All values in it come from the same tick.
+    */
+    public Reading getReading(){
+        return current;
+    }
+
+    /**
+    * Publish every future reading to <bus>, or stop publishing if null.
+    *
+    * @param - ReadingBus bus: the bus to publish to
+    */
+    public void publishTo(ReadingBus bus){
+        this.bus = bus;
+    }
+
+    /**
+    * Poll <extra> from the next tick on, alongside the temperature
+    * sensor and barometer. May be called while the station runs.
+    *
+    * @param - Sensor extra: the sensor to add
+    */
+    public void addSensor(Sensor extra){
+        poller.add(extra);
+    }
+
+    /**
+    * Stop polling <extra> from the next tick on.
+    *
+    * @param - Sensor extra: the sensor to remove
+    * @return - boolean: true if the sensor was being polled
+    */
+    public boolean removeSensor(Sensor extra){
+        return poller.remove(extra);
+    }
+
+    /**
+    * Return the extra sensors currently polled.
+    */
+    public Sensor[] getSensors(){
+        return poller.getSensors();
+    }
+
+    /**
+    * Return the poller of the extra sensors, for its timeout and
+    * error counts.
+    */
+    public SensorPoller getSensorPoller(){
+        return poller;
+    }
+
+    /**
+    * Add a new instance of every Sensor listed in META-INF/services/Sensor
+    * on the class path.
+    *
+    * @return - int: the number of sensors added
+    */
+    public int loadSensors(){
+        int count = 0;
+        for(Sensor extra : ServiceLoader.load(Sensor.class)){
+            addSensor(extra);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+    * Return the unique id of this station.
+    */
+    public int getId(){
+        return id;
+    }
+
+    /**
+    * Return the name of this station, "Station <id>".
+    */
+    public String getName(){
+        return "Station " + id;
+    }
+
+    /**
+    * Return 1 once the station has taken a reading, else 0.
+    */
+    public int getStationCount(){
+        return current.getSequence() > 0 ? 1 : 0;
+    }
+
+    /**
+    * Return the current sampling period in milliseconds.
+    */
+    public long getPeriod(){
+        return period;
+    }
+
+    /**
+    * Sample every <period> milliseconds from the next tick on, and
+    * leave adaptive mode.
+    *
+    * @param - long period: the sampling period in ms, must be positive
+    */
+    public void setPeriod(long period){
+        if(period <= 0){
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        this.adaptive = false;
+        this.period = period;
+    }
+
+    /**
+    * Adapt the sampling period between <minPeriod> and <maxPeriod>: sample
+    * faster while the temperature changes by at least <kelvinStep>
+    * hundredths of a degree or the pressure by at least <pressureStep>
+    * inches per tick, and slower while it is stable.
+    *
+    * @param - long minPeriod: fastest period in ms, long maxPeriod: slowest period in ms,
+    *          int kelvinStep: temperature change in 1/100ths of a degree,
+    *          double pressureStep: pressure change in inches
+    */
+    public void setAdaptive(long minPeriod, long maxPeriod, int kelvinStep, double pressureStep){
+        if(minPeriod <= 0 || maxPeriod < minPeriod){
+            throw new IllegalArgumentException("need 0 < minPeriod <= maxPeriod: " + minPeriod + ", " + maxPeriod);
+        }
+        this.minPeriod = minPeriod;
+        this.maxPeriod = maxPeriod;
+        this.kelvinStep = kelvinStep;
+        this.pressureStep = pressureStep;
+        this.period = Math.max(minPeriod, Math.min(maxPeriod, period));
+        this.adaptive = true;
+    }
+
+    /**
+    * Return true if the station is in adaptive mode.
+    */
+    public boolean isAdaptive(){
+        return adaptive;
+    }
+
+    /**
+    * Shorten or lengthen the period according to how far the readings
+    * moved in the last tick.
+    *
+    * @param - Reading previous: the last reading, Reading reading: the new one
+    */
+    private void adapt(Reading previous, Reading reading){
+        boolean fast = Math.abs(reading.getRawKelvin() - previous.getRawKelvin()) >= kelvinStep
+                || Math.abs(reading.getPressureInches() - previous.getPressureInches()) >= pressureStep;
+        long next = fast ? period / 2 : period + Math.max(1, period / 4);
+        period = Math.max(minPeriod, Math.min(maxPeriod, next));
+    }
+
+    /**
+    * Return the current reading in degrees celsius as a
+    * double precision number.
+    */
+    public double getCelsius(){
+        return current.getCelsius();
+    }
+
+    /**
+    * Return the current reading in degrees Kelvin as a
+    * double precision number.
+    */
+    public double getKelvin(){
+        return current.getKelvin();
+    }
+    
+    /**
+    * Return the current reading in degrees Fahrenheit as a
+    * double precision number.
+    */
+    public double getFahrenheit(){
+        return current.getFahrenheit();
+    }
+    
+    /**
+    * Return the current pressure in inches as a
+    * double precision number.
+    */
+    public double getPressureInches(){
+        return current.getPressureInches();
+    }
+    
+    /**
+    * Return the current pressure in millibars as a
+    * double precision number.
+    */
+    public double getPressureMillibars(){
+        return current.getPressureMillibars();
+    }
+}
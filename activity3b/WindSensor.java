@@ -0,0 +1,67 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+/**
+* The WindSensor class is a (simulated) anemometer, reporting wind speed
+* in meters per second as a double precision number. The wind drifts
+* around its current speed and now and then gusts, and stays between
+* calm (0) and 40 m/s.
+*/
+
+import java.util.SplittableRandom;
+
+public class WindSensor implements Sensor{
+    private static final double MAX = 40.0;        // Maximum reading.
+    private static final double DEFAULT = 3.0;     // Default reading.
+    private static final double MAXDELTA = 0.5;    // Maximum drift per reading.
+    private static final double GUST = 0.05;       // 5% chance of a gust.
+    private static final double MAXGUST = 8.0;     // Maximum gust above the current speed.
+
+    private final SplittableRandom rand;   // Simulate random changes.
+    private double speed = DEFAULT;        // Current speed, without gusts.
+
+    /**
+    * Initialize the sensor to the default value.
+    */
+    public WindSensor(){
+        this(new SplittableRandom());
+    }
+
+    /**
+    * Initialize the sensor to the default value, drawing its random
+    * changes from <rand>, which the sensor then owns.
+    *
+    * @param - SplittableRandom rand: the random number generator
+    */
+    public WindSensor(SplittableRandom rand){
+        this.rand = rand;
+    }
+
+    public String getName(){
+        return "wind";
+    }
+
+    public String getUnit(){
+        return "m/s";
+    }
+
+    /**
+    * Simulate a new reading: drift the speed a little and
+    * occasionally add a gust on top.
+    *
+    * @return - double: wind speed in m/s
+    */
+    public synchronized double read(){
+        speed = Math.max(0.0, Math.min(MAX, speed + (rand.nextDouble() * 2 - 1) * MAXDELTA));
+        if(rand.nextDouble() < GUST){
+            return Math.min(MAX, speed + rand.nextDouble() * MAXGUST);
+        }
+        return speed;
+    }
+}
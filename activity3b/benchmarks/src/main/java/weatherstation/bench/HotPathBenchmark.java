@@ -0,0 +1,223 @@
+/**
+* Initial Author
+*      Ellie Parobek
+*
+* Other Contributers
+*
+* Acknowledgements
+*/
+
+package weatherstation.bench;
+
+/**
+* JMH benchmarks of the station hot path, the same operations as
+* StationBenchmark measures by hand:
+*    - KelvinTempSensor.reading() and Barometer.pressure()
+*    - WeatherStation.tick() with 0, 1, 10 and 100 observers
+*    - the WeatherStation conversion getters
+*    - TextUI.update() formatting, with System.out discarded
+*
+* The station classes are in the default package, which JMH does not
+* allow for benchmarks and a named package cannot import, so they are
+* reached through MethodHandles held in static final fields. The JIT
+* treats those as constants and inlines the calls, so they cost nothing
+* in the results.
+*
+* Build and run from the repository root with
+*    mvn -B package
+*    java -jar activity3b/benchmarks/target/benchmarks.jar
+*/
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HotPathBenchmark{
+    private static final MethodHandle NEW_SENSOR = constructor("KelvinTempSensor");
+    private static final MethodHandle NEW_BAROMETER = constructor("Barometer");
+    private static final MethodHandle NEW_STATION = constructor("WeatherStation");
+    private static final MethodHandle NEW_TEXT_UI = constructor("TextUI", "WeatherStation");
+
+    private static final MethodHandle READING = method("KelvinTempSensor", "reading", int.class);
+    private static final MethodHandle PRESSURE = method("Barometer", "pressure", double.class);
+    private static final MethodHandle TICK = method("WeatherStation", "tick", void.class);
+    private static final MethodHandle GET_READING = method("WeatherStation", "getReading", Object.class);
+    private static final MethodHandle KELVIN = method("WeatherStation", "getKelvin", double.class);
+    private static final MethodHandle CELSIUS = method("WeatherStation", "getCelsius", double.class);
+    private static final MethodHandle FAHRENHEIT = method("WeatherStation", "getFahrenheit", double.class);
+    private static final MethodHandle INCHES = method("WeatherStation", "getPressureInches", double.class);
+    private static final MethodHandle MILLIBARS = method("WeatherStation", "getPressureMillibars", double.class);
+
+    /**
+    * The simulated sensors.
+    */
+    @State(Scope.Thread)
+    public static class Sensors{
+        Object sensor;
+        Object barometer;
+
+        @Setup
+        public void setUp() throws Throwable{
+            sensor = (Object) NEW_SENSOR.invokeExact();
+            barometer = (Object) NEW_BAROMETER.invokeExact();
+        }
+    }
+
+    /**
+    * A station with <observers> observers that count the updates.
+    */
+    @State(Scope.Thread)
+    public static class Ticking{
+        @Param({ "0", "1", "10", "100" })
+        public int observers;
+
+        Object station;
+        long seen;
+
+        @Setup
+        public void setUp() throws Throwable{
+            station = (Object) NEW_STATION.invokeExact();
+            for(int i = 0; i < observers; i++){
+                Observer observer = (obs, arg) -> seen++;
+                ((Observable) station).addObserver(observer);
+            }
+        }
+    }
+
+    /**
+    * A station that has taken one reading.
+    */
+    @State(Scope.Thread)
+    public static class Ticked{
+        Object station;
+
+        @Setup
+        public void setUp() throws Throwable{
+            station = (Object) NEW_STATION.invokeExact();
+            TICK.invokeExact(station);
+        }
+    }
+
+    /**
+    * A TextUI, not observing its station, and the station's reading;
+    * System.out is discarded while it runs.
+    */
+    @State(Scope.Thread)
+    public static class Text{
+        Object station;
+        Object reading;
+        Observer ui;
+        PrintStream out;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Throwable{
+            station = (Object) NEW_STATION.invokeExact();
+            ui = (Observer) (Object) NEW_TEXT_UI.invokeExact(station);
+            ((Observable) station).deleteObserver(ui);
+            TICK.invokeExact(station);
+            reading = (Object) GET_READING.invokeExact(station);
+            out = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown(){
+            System.setOut(out);
+        }
+    }
+
+    @Benchmark
+    public int sensorReading(Sensors state) throws Throwable{
+        return (int) READING.invokeExact(state.sensor);
+    }
+
+    @Benchmark
+    public double barometerPressure(Sensors state) throws Throwable{
+        return (double) PRESSURE.invokeExact(state.barometer);
+    }
+
+    @Benchmark
+    public long tick(Ticking state) throws Throwable{
+        TICK.invokeExact(state.station);
+        return state.seen;
+    }
+
+    @Benchmark
+    public double getters(Ticked state) throws Throwable{
+        Object station = state.station;
+        return (double) KELVIN.invokeExact(station) + (double) CELSIUS.invokeExact(station)
+                + (double) FAHRENHEIT.invokeExact(station) + (double) INCHES.invokeExact(station)
+                + (double) MILLIBARS.invokeExact(station);
+    }
+
+    @Benchmark
+    public void textUpdate(Text state){
+        state.ui.update((Observable) state.station, state.reading);
+    }
+
+    /**
+    * Return the no-argument constructor of default-package class <name>,
+    * or the one taking a <parameter>, typed to take and return Object.
+    */
+    private static MethodHandle constructor(String name, String... parameter){
+        try{
+            Class<?>[] types = new Class<?>[parameter.length];
+            for(int i = 0; i < types.length; i++){
+                types[i] = Class.forName(parameter[i]);
+            }
+            MethodHandle handle = MethodHandles.publicLookup().findConstructor(Class.forName(name),
+                    MethodType.methodType(void.class, types));
+            return handle.asType(handle.type().generic());
+        }
+        catch(ReflectiveOperationException e){
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+    * Return the public no-argument method <name> of default-package
+    * class <owner>, typed to take an Object receiver and return <result>.
+    */
+    private static MethodHandle method(String owner, String name, Class<?> result){
+        try{
+            Class<?> type = Class.forName(owner);
+            MethodHandle handle = null;
+            for(Method m : type.getMethods()){
+                if(m.getName().equals(name) && m.getParameterCount() == 0){
+                    handle = MethodHandles.publicLookup().unreflect(m);
+                }
+            }
+            if(handle == null){
+                throw new NoSuchMethodException(owner + "." + name);
+            }
+            return handle.asType(MethodType.methodType(result, Object.class));
+        }
+        catch(ReflectiveOperationException e){
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}